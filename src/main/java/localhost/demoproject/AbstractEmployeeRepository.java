@@ -0,0 +1,326 @@
+package localhost.demoproject;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import javax.persistence.EntityNotFoundException;
+
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Base for storage engines that replace the JPA implementation of
+ * {@link EmployeeRepository}. Subclasses provide a handful of storage primitives and
+ * get the rest of the repository contract, with the same observable behaviour as
+ * the JPA repository where the controller relies on it. Query by example is not
+ * supported.
+ *
+ * Employees handed out are copies: changing one has no effect until it is saved.
+ *
+ * Role scans that subclasses do not answer from an index of their own read an
+ * {@link EmployeeSnapshot} of every employee, which is kept until the next write.
+ */
+abstract class AbstractEmployeeRepository implements EmployeeRepository {
+	private final AtomicLong writes = new AtomicLong();
+	private volatile Snapshot snapshot;
+
+	/**
+	 * Given an employee, insert or replace it, assigning a new id when it has none
+	 *
+	 * @param employee - Employee to store
+	 * @return the id the employee is stored under
+	 */
+	protected abstract Long store(Employee employee);
+
+	protected abstract Optional<Employee> load(Long id);
+
+	/**
+	 * @return true if an employee with the given id existed
+	 */
+	protected abstract boolean remove(Long id);
+
+	/**
+	 * @return every stored employee, in no particular order
+	 */
+	protected abstract List<Employee> loadAll();
+
+	protected abstract long size();
+
+	@Override
+	public <S extends Employee> S save(S entity) {
+		entity.setId(store(entity));
+		writes.incrementAndGet();
+		return entity;
+	}
+
+	@Override
+	public <S extends Employee> List<S> saveAll(Iterable<S> entities) {
+		List<S> saved = new ArrayList<>();
+		for (S entity : entities) {
+			saved.add(save(entity));
+		}
+		return saved;
+	}
+
+	@Override
+	public <S extends Employee> S saveAndFlush(S entity) {
+		return save(entity);
+	}
+
+	@Override
+	public void flush() {
+		// Writes are applied immediately
+	}
+
+	@Override
+	public Optional<Employee> findById(Long id) {
+		return load(id);
+	}
+
+	@Override
+	public boolean existsById(Long id) {
+		return load(id).isPresent();
+	}
+
+	@Override
+	public Employee getOne(Long id) {
+		return load(id).orElseThrow(() -> new EntityNotFoundException("Unable to find Employee with id " + id));
+	}
+
+	@Override
+	public List<Employee> findAll() {
+		return findAll(Sort.by("id"));
+	}
+
+	@Override
+	public List<Employee> findAll(Sort sort) {
+		List<Employee> employees = loadAll();
+		if (sort.isSorted()) {
+			employees.sort(comparator(sort));
+		}
+		return employees;
+	}
+
+	@Override
+	public Page<Employee> findAll(Pageable pageable) {
+		List<Employee> employees = findAll(pageable.getSortOr(Sort.by("id")));
+		if (pageable.isUnpaged()) {
+			return new PageImpl<>(employees);
+		}
+
+		int from = (int) Math.min(pageable.getOffset(), employees.size());
+		int to = Math.min(from + pageable.getPageSize(), employees.size());
+		return new PageImpl<>(new ArrayList<>(employees.subList(from, to)), pageable, employees.size());
+	}
+
+	@Override
+	public List<Employee> findAllById(Iterable<Long> ids) {
+		List<Employee> employees = new ArrayList<>();
+		for (Long id : ids) {
+			load(id).ifPresent(employees::add);
+		}
+		return employees;
+	}
+
+	@Override
+	public List<Employee> findByRole(String role) {
+		return snapshot().employeesWithRole(role);
+	}
+
+	@Override
+	public List<Employee> findAllProjected(Set<EmployeeField> fields) {
+		List<Employee> employees = new ArrayList<>();
+		for (Employee employee : findAll()) {
+			employees.add(project(employee, fields));
+		}
+		return employees;
+	}
+
+	@Override
+	public List<Employee> findByRoleProjected(String role, Set<EmployeeField> fields) {
+		List<Employee> employees = new ArrayList<>();
+		for (Employee employee : findByRole(role)) {
+			employees.add(project(employee, fields));
+		}
+		return employees;
+	}
+
+	@Override
+	public Optional<Employee> findProjectedById(Long id, Set<EmployeeField> fields) {
+		return load(id).map(employee -> project(employee, fields));
+	}
+
+	@Override
+	public Map<String, Long> countPerRole() {
+		return snapshot().countPerRole();
+	}
+
+	@Override
+	public long count() {
+		return size();
+	}
+
+	@Override
+	public void deleteById(Long id) {
+		boolean removed = remove(id);
+		writes.incrementAndGet();
+		if (!removed) {
+			throw new EmptyResultDataAccessException("No Employee entity with id " + id + " exists!", 1);
+		}
+	}
+
+	@Override
+	public void delete(Employee entity) {
+		remove(entity.getId());
+		writes.incrementAndGet();
+	}
+
+	@Override
+	public void deleteAll(Iterable<? extends Employee> entities) {
+		for (Employee entity : entities) {
+			delete(entity);
+		}
+	}
+
+	@Override
+	public void deleteAll() {
+		deleteAll(loadAll());
+	}
+
+	@Override
+	public void deleteInBatch(Iterable<Employee> entities) {
+		deleteAll(entities);
+	}
+
+	@Override
+	public void deleteAllInBatch() {
+		deleteAll();
+	}
+
+	@Override
+	public <S extends Employee> Optional<S> findOne(Example<S> example) {
+		throw unsupportedExample();
+	}
+
+	@Override
+	public <S extends Employee> List<S> findAll(Example<S> example) {
+		throw unsupportedExample();
+	}
+
+	@Override
+	public <S extends Employee> List<S> findAll(Example<S> example, Sort sort) {
+		throw unsupportedExample();
+	}
+
+	@Override
+	public <S extends Employee> Page<S> findAll(Example<S> example, Pageable pageable) {
+		throw unsupportedExample();
+	}
+
+	@Override
+	public <S extends Employee> long count(Example<S> example) {
+		throw unsupportedExample();
+	}
+
+	@Override
+	public <S extends Employee> boolean exists(Example<S> example) {
+		throw unsupportedExample();
+	}
+
+	/**
+	 * Helper function that copies only the selected fields of employee, the way
+	 * {@link EmployeeRepositoryImpl} reads only the selected columns
+	 *
+	 * @param employee - Employee to copy from
+	 * @param fields - fields selected by the client
+	 * @return a new Employee with only the selected fields set
+	 */
+	protected Employee project(Employee employee, Set<EmployeeField> fields) {
+		Employee projected = new Employee();
+
+		if (fields.contains(EmployeeField.ID) || fields.contains(EmployeeField.LINKS)) {
+			projected.setId(employee.getId());
+		}
+		if (fields.contains(EmployeeField.FIRST_NAME)) {
+			projected.setFirstName(employee.getFirstName());
+		}
+		if (fields.contains(EmployeeField.LAST_NAME)) {
+			projected.setLastName(employee.getLastName());
+		}
+		if (fields.contains(EmployeeField.ROLE)) {
+			projected.setRole(employee.getRole());
+		}
+
+		return projected;
+	}
+
+	/**
+	 * Helper function that returns the snapshot of every employee, sorted by id,
+	 * building a new one if anything was written since the last was built
+	 */
+	private EmployeeSnapshot snapshot() {
+		// Read before loading, so a write racing the load makes the next call rebuild
+		long version = writes.get();
+		Snapshot current = snapshot;
+		if (current == null || current.version != version) {
+			current = new Snapshot(version, EmployeeSnapshot.of(findAll()));
+			snapshot = current;
+		}
+		return current.employees;
+	}
+
+	private Comparator<Employee> comparator(Sort sort) {
+		Comparator<Employee> comparator = null;
+
+		for (Sort.Order order : sort) {
+			Comparator<Employee> next = Comparator.comparing(property(order.getProperty()),
+					Comparator.nullsFirst(Comparator.<Comparable<Object>>naturalOrder()));
+			if (order.isDescending()) {
+				next = next.reversed();
+			}
+			comparator = comparator == null ? next : comparator.thenComparing(next);
+		}
+
+		return comparator;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Function<Employee, Comparable<Object>> property(String name) {
+		switch (name) {
+		case "id":
+			return employee -> (Comparable<Object>) (Comparable<?>) employee.getId();
+		case "firstName":
+			return employee -> (Comparable<Object>) (Comparable<?>) employee.getFirstName();
+		case "lastName":
+			return employee -> (Comparable<Object>) (Comparable<?>) employee.getLastName();
+		case "role":
+			return employee -> (Comparable<Object>) (Comparable<?>) employee.getRole();
+		default:
+			throw new IllegalArgumentException("No property " + name + " found for type Employee");
+		}
+	}
+
+	private UnsupportedOperationException unsupportedExample() {
+		return new UnsupportedOperationException("Query by example is not supported by " + getClass().getSimpleName());
+	}
+
+	private static final class Snapshot {
+		final long version;
+		final EmployeeSnapshot employees;
+
+		Snapshot(long version, EmployeeSnapshot employees) {
+			this.version = version;
+			this.employees = employees;
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package localhost.demoproject;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Count-min sketch over 64-bit key hashes: depth rows of width counters, each key
+ * counted once per row. The estimate of a key is the smallest of its counters, which
+ * never undercounts and overcounts by at most 2N/width with probability
+ * 1 - 2^-depth, for N counted keys. Counters are updated without locking.
+ */
+final class CountMinSketch {
+	private final AtomicIntegerArray counters;
+	private final int depth;
+	private final int mask;
+
+	/**
+	 * @param depth - number of rows
+	 * @param width - counters per row, rounded up to a power of two
+	 */
+	CountMinSketch(int depth, int width) {
+		int bits = 32 - Integer.numberOfLeadingZeros(Math.max(2, width) - 1);
+		this.depth = depth;
+		this.mask = (1 << bits) - 1;
+		this.counters = new AtomicIntegerArray(depth << bits);
+	}
+
+	/**
+	 * Given the hash of a key, count it once
+	 *
+	 * @return the estimate of the key including this occurrence
+	 */
+	int add(long hash) {
+		int estimate = Integer.MAX_VALUE;
+		for (int row = 0; row < depth; row++) {
+			estimate = Math.min(estimate, counters.incrementAndGet(index(hash, row)));
+		}
+		return estimate;
+	}
+
+	int estimate(long hash) {
+		int estimate = Integer.MAX_VALUE;
+		for (int row = 0; row < depth; row++) {
+			estimate = Math.min(estimate, counters.get(index(hash, row)));
+		}
+		return estimate;
+	}
+
+	void clear() {
+		for (int i = 0; i < counters.length(); i++) {
+			counters.set(i, 0);
+		}
+	}
+
+	/**
+	 * Row i uses h1 + i * h2 (Kirsch and Mitzenmacher), both halves of the hash
+	 */
+	private int index(long hash, int row) {
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32) | 1;
+		return (row * (mask + 1)) + ((h1 + row * h2) & mask);
+	}
+}
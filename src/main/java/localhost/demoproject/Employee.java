@@ -2,14 +2,24 @@ package localhost.demoproject;
 
 import lombok.Data;
 
+import javax.persistence.Column;
+import javax.persistence.Convert;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Version;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 
+import org.hibernate.annotations.DynamicUpdate;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 @Data
 @Entity
+@DynamicUpdate // UPDATE statements only set the columns that changed, see PATCH /employees/{id}
+@EntityListeners(EmployeeChangeListener.class)
 public class Employee{
 	
 	@Id @GeneratedValue
@@ -19,7 +29,10 @@ public class Employee{
 	@NotNull @Size(min=1, message="lastName should have atleast 2 characters") 
 	private String lastName;
 	@NotNull @Size(min=1, message="role should have atleast 2 characters")
+	@Convert(converter = RoleCodeConverter.class) @Column(name = "role_code") // see RoleDictionary
 	private  String role;
+	@Version @JsonIgnore // compared by EmployeeNearCache so a stale read is never cached over a newer write
+	private long version;
 	//private double salary;
 	
 	Employee(){}
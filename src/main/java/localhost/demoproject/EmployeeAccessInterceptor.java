@@ -0,0 +1,75 @@
+package localhost.demoproject;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Counts the reads served by {@link EmployeeController} in two {@link HotKeys}: the
+ * ids asked for by GET /employees/{id}, and the query shapes, which are the path
+ * pattern and the names of the query parameters, e.g. "GET /employees?fields,role".
+ * The most frequent of both are served by the hotkeys actuator endpoint. Requests
+ * sent by {@link EmployeeWarmUp} are not counted.
+ */
+@Component
+class EmployeeAccessInterceptor implements HandlerInterceptor {
+	private final HotKeys ids;
+	private final HotKeys queries;
+
+	EmployeeAccessInterceptor(@Value("${employee.hot-keys.top:10}") int top,
+			@Value("${employee.hot-keys.window:60s}") Duration window,
+			@Value("${employee.hot-keys.buckets:6}") int buckets) {
+		this.ids = new HotKeys(top, window.toMillis(), buckets, System::currentTimeMillis);
+		this.queries = new HotKeys(top, window.toMillis(), buckets, System::currentTimeMillis);
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		if (!"GET".equals(request.getMethod()) || !(handler instanceof HandlerMethod)
+				|| ((HandlerMethod) handler).getBeanType() != EmployeeController.class
+				|| request.getAttribute(EmployeeWarmUpFilter.REQUEST_ATTRIBUTE) != null) {
+			return true;
+		}
+
+		String pattern = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		queries.record(shape(pattern, request.getParameterMap()));
+
+		if ("/employees/{id}".equals(pattern)) {
+			@SuppressWarnings("unchecked")
+			Map<String, String> variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+			try {
+				ids.record(Long.parseLong(variables.get("id")));
+			} catch (NumberFormatException e) {
+				// Rejected by the controller, not worth counting
+			}
+		}
+		return true;
+	}
+
+	HotKeys ids() {
+		return ids;
+	}
+
+	HotKeys queries() {
+		return queries;
+	}
+
+	private static String shape(String pattern, Map<String, String[]> parameters) {
+		if (parameters.isEmpty()) {
+			return "GET " + pattern;
+		}
+
+		String[] names = parameters.keySet().toArray(new String[0]);
+		Arrays.sort(names);
+		return "GET " + pattern + "?" + String.join(",", names);
+	}
+}
@@ -0,0 +1,59 @@
+package localhost.demoproject;
+
+import java.util.List;
+
+import javax.validation.Valid;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class EmployeeBulkController {
+	private final EmployeeBulkWriter bulkWriter;
+	private final int maxOperations;
+
+	EmployeeBulkController(EmployeeBulkWriter bulkWriter, @Value("${employee.bulk.max-operations:1000}") int maxOperations){
+		this.bulkWriter = bulkWriter;
+		this.maxOperations = maxOperations;
+	}
+
+	@PostMapping("/employees/_bulk")
+	/**
+	 * Given an ordered list of create, replace and delete operations, apply them in
+	 * order with as few transactions as possible, see EmployeeBulkWriter. Replace
+	 * inserts the employee if it does not exist, and deleting a missing employee
+	 * succeeds, like PUT and DELETE /employees/{id}.
+	 *
+	 * The request is rejected as a whole if any operation is malformed. Otherwise the
+	 * answer is 200 with the status of every operation, and failed operations did not
+	 * change anything.
+	 *
+	 * @param request - the operations to apply
+	 * @return the result of every operation, in the order of the request
+	 */
+	HttpEntity<EmployeeBulkModel> bulk(@Valid @RequestBody EmployeeBulkRequest request) {
+		List<EmployeeBulkOperation> operations = request.getOperations();
+		if (operations.size() > maxOperations) {
+			throw new InvalidBulkRequestException("operations", "must hold at most " + maxOperations + " operations");
+		}
+		for (int i = 0; i < operations.size(); i++) {
+			EmployeeBulkOperation operation = operations.get(i);
+			if (operation.getOp() != EmployeeBulkOperation.Type.CREATE && operation.getId() == null) {
+				throw new InvalidBulkRequestException("operations[" + i + "].id", "is required for " + operation.getOp());
+			}
+			if (operation.getOp() != EmployeeBulkOperation.Type.DELETE && operation.getEmployee() == null) {
+				throw new InvalidBulkRequestException("operations[" + i + "].employee", "is required for " + operation.getOp());
+			}
+		}
+
+		List<EmployeeBulkResult> results = bulkWriter.write(operations);
+		int failed = (int) results.stream().filter(result -> result.getError() != null).count();
+
+		return new ResponseEntity<EmployeeBulkModel>(new EmployeeBulkModel(results, failed), HttpStatus.OK);
+	}
+}
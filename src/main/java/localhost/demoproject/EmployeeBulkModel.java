@@ -0,0 +1,20 @@
+package localhost.demoproject;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import org.springframework.hateoas.RepresentationModel;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = false)
+public class EmployeeBulkModel extends RepresentationModel<EmployeeBulkModel>{
+	// One per operation, in the order of the request
+	private List<EmployeeBulkResult> results;
+	private int failed;
+}
@@ -0,0 +1,30 @@
+package localhost.demoproject;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
+import lombok.Data;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One operation of POST /employees/_bulk, e.g.
+ * {"op": "replace", "id": 7, "employee": {"firstName": ..., "lastName": ..., "role": ...}}
+ */
+@Data
+public class EmployeeBulkOperation {
+	
+	public enum Type {
+		@JsonProperty("create") CREATE,
+		@JsonProperty("replace") REPLACE,
+		@JsonProperty("delete") DELETE
+	}
+	
+	@NotNull
+	private Type op;
+	// Required for replace and delete
+	private Long id;
+	// Required for create and replace
+	@Valid
+	private Employee employee;
+}
@@ -0,0 +1,14 @@
+package localhost.demoproject;
+
+import java.util.List;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+
+import lombok.Data;
+
+@Data
+public class EmployeeBulkRequest {
+	@NotEmpty @Valid
+	private List<EmployeeBulkOperation> operations;
+}
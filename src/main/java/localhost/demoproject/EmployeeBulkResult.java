@@ -0,0 +1,24 @@
+package localhost.demoproject;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of one operation of POST /employees/_bulk. The status is the one the single
+ * employee endpoint would have answered: 201 created or replaced (PUT answers 201
+ * either way), 204 deleted, or 409 and 500 when the operation failed, with the
+ * reason in error.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EmployeeBulkResult {
+	private EmployeeBulkOperation.Type op;
+	private int status;
+	private Long id;
+	private String error;
+}
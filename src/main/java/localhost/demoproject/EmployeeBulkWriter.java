@@ -0,0 +1,209 @@
+package localhost.demoproject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Applies the operations of POST /employees/_bulk in order, chunkSize operations per
+ * transaction, so a chunk pays for one commit and Hibernate sends its statements as
+ * JDBC batches (see hibernate.jdbc.batch_size). The employees a chunk replaces or
+ * deletes are read in one query, and its change log entries are written in one batch
+ * (see {@link EmployeeChangeLog}).
+ *
+ * If the transaction of a chunk fails nothing of it is kept, and its operations are
+ * applied again in one transaction each, so only the offending operations fail. A
+ * failed operation does not stop the operations after it. The storage engines outside
+ * JPA transactions apply one operation at a time, since they could not undo the start
+ * of a failed chunk.
+ */
+@Component
+@Slf4j
+class EmployeeBulkWriter {
+	private final EmployeeRepository repository;
+	private final TransactionTemplate transactionTemplate;
+	private final EmployeeStats stats;
+	private final RoleDictionary roles;
+	private final EmployeeNearCache nearCache;
+	private final int chunkSize;
+
+	EmployeeBulkWriter(EmployeeRepository repository, PlatformTransactionManager transactionManager,
+			EmployeeStats stats, RoleDictionary roles, Optional<EmployeeNearCache> nearCache,
+			@Value("${employee.bulk.chunk-size:1000}") int chunkSize) {
+		this.repository = repository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.stats = stats;
+		this.roles = repository instanceof AbstractEmployeeRepository ? null : roles;
+		this.nearCache = nearCache.orElse(null);
+		this.chunkSize = repository instanceof AbstractEmployeeRepository ? 1 : chunkSize;
+	}
+
+	/**
+	 * Given validated operations, apply them in order
+	 *
+	 * @param operations - operations carrying the fields their type requires
+	 * @return the result of every operation, in the same order
+	 */
+	List<EmployeeBulkResult> write(List<EmployeeBulkOperation> operations) {
+		List<EmployeeBulkResult> results = new ArrayList<>(operations.size());
+
+		// New roles are added before any chunk holds a connection, see RoleDictionary
+		if (roles != null) {
+			for (EmployeeBulkOperation operation : operations) {
+				if (operation.getEmployee() != null && operation.getEmployee().getRole() != null) {
+					roles.code(operation.getEmployee().getRole());
+				}
+			}
+		}
+
+		for (int from = 0; from < operations.size(); from += chunkSize) {
+			List<EmployeeBulkOperation> chunk = operations.subList(from, Math.min(from + chunkSize, operations.size()));
+			try {
+				results.addAll(commit(chunk));
+			} catch (RuntimeException e) {
+				if (chunk.size() == 1) {
+					results.add(failed(chunk.get(0), e));
+					continue;
+				}
+
+				log.warn("Bulk chunk of " + chunk.size() + " employee operations failed, retrying individually", e);
+				for (EmployeeBulkOperation operation : chunk) {
+					try {
+						results.addAll(commit(Collections.singletonList(operation)));
+					} catch (RuntimeException single) {
+						results.add(failed(operation, single));
+					}
+				}
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Helper function that applies chunk in one transaction, and once it committed
+	 * reports the writes to the stats and the near-cache
+	 */
+	private List<EmployeeBulkResult> commit(List<EmployeeBulkOperation> chunk) {
+		List<Runnable> reports = new ArrayList<>();
+		List<EmployeeBulkResult> results = transactionTemplate.execute(status -> {
+			Map<Long, Employee> existing = existing(chunk);
+			List<EmployeeBulkResult> applied = new ArrayList<>(chunk.size());
+			for (EmployeeBulkOperation operation : chunk) {
+				applied.add(apply(operation, existing, reports));
+			}
+			return applied;
+		});
+
+		reports.forEach(Runnable::run);
+		return results;
+	}
+
+	/**
+	 * Helper function that reads the employees the operations of chunk replace or
+	 * delete, by id
+	 */
+	private Map<Long, Employee> existing(List<EmployeeBulkOperation> chunk) {
+		List<Long> ids = new ArrayList<>();
+		for (EmployeeBulkOperation operation : chunk) {
+			if (operation.getOp() != EmployeeBulkOperation.Type.CREATE) {
+				ids.add(operation.getId());
+			}
+		}
+
+		Map<Long, Employee> existing = new HashMap<>();
+		if (!ids.isEmpty()) {
+			for (Employee employee : repository.findAllById(ids)) {
+				existing.put(employee.getId(), employee);
+			}
+		}
+		return existing;
+	}
+
+	/**
+	 * Helper function that applies operation the way POST, PUT and DELETE
+	 * /employees do
+	 *
+	 * @param existing - the employees of the chunk by id, kept up to date with its operations
+	 * @param reports - list to add what to report once committed to
+	 */
+	private EmployeeBulkResult apply(EmployeeBulkOperation operation, Map<Long, Employee> existing, List<Runnable> reports) {
+		Employee employee = operation.getEmployee();
+
+		switch (operation.getOp()) {
+		case CREATE:
+			// Cleared in case a failed chunk already assigned them
+			employee.setId(null);
+			employee.setVersion(0);
+			Employee created = repository.save(employee);
+			reports.add(() -> {
+				stats.created(created.getRole());
+				written(created, false);
+			});
+			return new EmployeeBulkResult(operation.getOp(), 201, created.getId(), null);
+
+		case REPLACE:
+			Employee replaced = existing.get(operation.getId());
+			if (replaced != null) {
+				String oldRole = replaced.getRole();
+				replaced.setName(employee.getName());
+				replaced.setRole(employee.getRole());
+				Employee saved = repository.save(replaced);
+				reports.add(() -> {
+					stats.changed(oldRole, saved.getRole());
+					written(saved, false);
+				});
+				return new EmployeeBulkResult(operation.getOp(), 201, saved.getId(), null);
+			}
+
+			employee.setId(operation.getId());
+			Employee inserted = repository.save(employee);
+			existing.put(inserted.getId(), inserted);
+			reports.add(() -> {
+				stats.created(inserted.getRole());
+				written(inserted, false);
+			});
+			return new EmployeeBulkResult(operation.getOp(), 201, inserted.getId(), null);
+
+		case DELETE:
+			Employee deleted = existing.remove(operation.getId());
+			if (deleted != null) {
+				repository.deleteById(operation.getId());
+				reports.add(() -> {
+					stats.deleted(deleted.getRole());
+					written(deleted, true);
+				});
+			}
+			return new EmployeeBulkResult(operation.getOp(), 204, operation.getId(), null);
+
+		default:
+			throw new IllegalArgumentException("Unknown bulk operation " + operation.getOp());
+		}
+	}
+
+	private EmployeeBulkResult failed(EmployeeBulkOperation operation, RuntimeException e) {
+		if (e instanceof OptimisticLockingFailureException) {
+			return new EmployeeBulkResult(operation.getOp(), 409, operation.getId(),
+					"Employee was changed by another request, retry with its current state");
+		}
+
+		log.warn("Bulk " + operation.getOp() + " of employee " + operation.getId() + " failed", e);
+		return new EmployeeBulkResult(operation.getOp(), 500, operation.getId(), "Failed to write employee");
+	}
+
+	private void written(Employee employee, boolean deleted) {
+		if (nearCache != null) {
+			nearCache.written(employee, deleted);
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package localhost.demoproject;
+
+import java.time.Instant;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import lombok.Data;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One entry of the append-only employee change log. Rows are written by
+ * {@link EmployeeChangeLog} in the same transaction as the change itself; a
+ * DELETED entry is a tombstone and only carries the employeeId.
+ */
+@Data
+@Entity
+@Table(indexes = @Index(columnList = "employeeId"))
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EmployeeChange {
+	
+	public enum Type { CREATED, UPDATED, DELETED }
+	
+	@Id @Column(name = "change_seq")
+	private Long sequence;
+	@Column(nullable = false)
+	private Long employeeId;
+	@Enumerated(EnumType.STRING) @Column(name = "change_type", nullable = false)
+	private Type type;
+	private String firstName;
+	private String lastName;
+	private String role;
+	@Column(nullable = false)
+	private Instant changedAt;
+}
@@ -0,0 +1,61 @@
+package localhost.demoproject;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+import java.util.List;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class EmployeeChangeController {
+	private static final int MAX_LIMIT = 1000;
+	
+	private final EmployeeChangeRepository changeRepository;
+	private final EmployeeChangeLog changeLog;
+	
+	EmployeeChangeController(EmployeeChangeRepository changeRepository, EmployeeChangeLog changeLog){
+		this.changeRepository = changeRepository;
+		this.changeLog = changeLog;
+	}
+	
+	@GetMapping("/employees/changes")
+	/**
+	 * Returns the employee changes after since, oldest first. Without since, the
+	 * changes from the start of the log are returned, which after compaction is the
+	 * latest state of every employee. An expired since answers HTTP 410 gone.
+	 * 
+	 * @param since - token returned by an earlier call
+	 * @param limit - maximum number of changes to return
+	 * @return a page of changes and the token to continue from
+	 */
+	HttpEntity<EmployeeChangesModel> changes(@RequestParam(required = false) String since,
+			@RequestParam(defaultValue = "100") int limit) {
+		long after = since != null ? changeLog.fromToken(since) : 0;
+		long horizon = changeLog.horizon();
+		int pageSize = Math.max(1, Math.min(limit, MAX_LIMIT));
+		
+		List<EmployeeChange> changes = changeRepository.findBySequenceGreaterThanAndSequenceLessThanEqualOrderBySequence(
+				after, horizon, PageRequest.of(0, pageSize + 1));
+		
+		boolean more = changes.size() > pageSize;
+		if (more) {
+			changes = changes.subList(0, pageSize);
+		}
+		// On the last page everything up to the horizon has been seen, including compacted gaps
+		long last = more ? changes.get(changes.size() - 1).getSequence() : Math.max(after, horizon);
+		
+		String token = changeLog.toToken(last);
+		EmployeeChangesModel model = new EmployeeChangesModel(changes, token, more);
+		model.add(linkTo(methodOn(EmployeeChangeController.class).changes(since, limit)).withSelfRel(),
+				linkTo(methodOn(EmployeeChangeController.class).changes(token, limit)).withRel("next"));
+		
+		return new ResponseEntity<EmployeeChangesModel>(model, HttpStatus.OK);
+	}
+}
@@ -0,0 +1,26 @@
+package localhost.demoproject;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+import lombok.Data;
+
+/**
+ * The single row of state that {@link EmployeeChangeLog} shares with the other
+ * instances on the same database: the epoch every change token starts with, and the
+ * sequence through which compaction has dropped tombstones. Its row lock orders the
+ * appends of all instances. Created and dropped with the change log table, so tokens
+ * from an earlier database are rejected.
+ */
+@Data
+@Entity
+public class EmployeeChangeEpoch {
+	
+	@Id
+	private Integer id;
+	@Column(nullable = false)
+	private String epoch;
+	@Column(nullable = false)
+	private Long purgedThrough;
+}
@@ -0,0 +1,32 @@
+package localhost.demoproject;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * JPA entity listener that appends every insert, update and delete of an Employee
+ * to the change log. Hibernate creates it through Spring, see {@link Employee}.
+ */
+class EmployeeChangeListener {
+	private final EmployeeChangeLog changeLog;
+	
+	EmployeeChangeListener(EmployeeChangeLog changeLog) {
+		this.changeLog = changeLog;
+	}
+	
+	@PostPersist
+	void created(Employee employee) {
+		changeLog.append(EmployeeChange.Type.CREATED, employee);
+	}
+	
+	@PostUpdate
+	void updated(Employee employee) {
+		changeLog.append(EmployeeChange.Type.UPDATED, employee);
+	}
+	
+	@PostRemove
+	void deleted(Employee employee) {
+		changeLog.append(EmployeeChange.Type.DELETED, employee);
+	}
+}
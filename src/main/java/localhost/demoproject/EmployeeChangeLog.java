@@ -0,0 +1,259 @@
+package localhost.demoproject;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Writes and compacts the employee change log.
+ *
+ * Sequence numbers come from a database sequence, so instances sharing the database
+ * never hand out the same one. A reader that already moved past sequence 11 would
+ * never see 10 if 10 committed later, so changes must commit in the order of their
+ * sequences: a transaction locks the row of {@link EmployeeChangeEpoch} before it
+ * takes sequences, and keeps the lock until it ends. Transactions of every instance
+ * on the database queue on that lock from their first written change until they
+ * commit, and the highest committed sequence is always safe to read up to, see
+ * {@link #horizon()}.
+ *
+ * Appends are collected per transaction and written in one JDBC batch, with their
+ * sequences taken in one query, when Hibernate has flushed the employees they belong
+ * to, or before a transaction without Hibernate commits. The lock is therefore only
+ * taken once the employee rows have been written.
+ *
+ * Compaction removes entries superseded by a later entry for the same employee,
+ * which bounds the log by the number of employees, and drops tombstones older than
+ * the retention. A token from before a dropped tombstone can no longer be
+ * continued and is rejected so the client does a full sync.
+ *
+ * The epoch of the tokens and the sequence compaction dropped tombstones through
+ * are kept in the database ({@link EmployeeChangeEpoch}), so every instance accepts
+ * the tokens of the others. The sequence and that row are created at startup, since
+ * DDL would commit the transaction of the first change.
+ */
+@Component
+@Slf4j
+class EmployeeChangeLog implements HibernatePropertiesCustomizer {
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate appendTransaction;
+	private final Duration tombstoneRetention;
+	private volatile String epoch;
+
+	EmployeeChangeLog(DataSource dataSource,
+			@Value("${employee.changes.tombstone-retention:7d}") Duration tombstoneRetention) {
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.appendTransaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		this.tombstoneRetention = tombstoneRetention;
+	}
+
+	/**
+	 * Creates the sequence and the epoch of the change log unless another instance on
+	 * the same database already did
+	 */
+	@EventListener(ContextRefreshedEvent.class)
+	void initialize() {
+		// Tokens from an earlier database cannot be continued
+		try {
+			jdbcTemplate.update("INSERT INTO employee_change_epoch (id, epoch, purged_through) SELECT 1, ?, 0"
+					+ " WHERE NOT EXISTS (SELECT 1 FROM employee_change_epoch)", Long.toString(System.currentTimeMillis(), 36));
+		} catch (DuplicateKeyException e) {
+			// Another instance inserted it first
+		}
+
+		jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS employee_change_seq START WITH " + (committed() + 1));
+	}
+
+	/**
+	 * Flushes the appends of a transaction after every Hibernate flush, which also
+	 * covers the flush Hibernate does while committing
+	 */
+	@Override
+	public void customize(Map<String, Object> hibernateProperties) {
+		hibernateProperties.put(AvailableSettings.INTERCEPTOR, new EmptyInterceptor() {
+			@Override
+			public void postFlush(@SuppressWarnings("rawtypes") Iterator entities) {
+				flush();
+			}
+		});
+	}
+
+	/**
+	 * Given a change to employee, append it to the log in the current transaction, or
+	 * in a transaction of its own if there is none
+	 *
+	 * @param type - whether employee was created, updated or deleted
+	 * @param employee - the Employee after the change
+	 */
+	void append(EmployeeChange.Type type, Employee employee) {
+		if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+			// The lock must be held until the change is committed
+			appendTransaction.execute(status -> {
+				append(type, employee);
+				return null;
+			});
+			return;
+		}
+
+		boolean tombstone = type == EmployeeChange.Type.DELETED;
+		pending().add(new Object[] {null, employee.getId(), type.name(),
+				tombstone ? null : employee.getFirstName(),
+				tombstone ? null : employee.getLastName(),
+				tombstone ? null : employee.getRole(),
+				Timestamp.from(Instant.now())});
+	}
+
+	/**
+	 * Writes the appends of the current transaction that are not written yet
+	 */
+	void flush() {
+		@SuppressWarnings("unchecked")
+		List<Object[]> pending = (List<Object[]>) TransactionSynchronizationManager.getResource(this);
+		if (pending == null || pending.isEmpty()) {
+			return;
+		}
+
+		jdbcTemplate.queryForObject("SELECT id FROM employee_change_epoch FOR UPDATE", Integer.class);
+		List<Long> sequences = jdbcTemplate.queryForList("SELECT NEXT VALUE FOR employee_change_seq FROM SYSTEM_RANGE(1, ?)",
+				Long.class, pending.size());
+		for (int i = 0; i < pending.size(); i++) {
+			pending.get(i)[0] = sequences.get(i);
+		}
+
+		jdbcTemplate.batchUpdate("INSERT INTO employee_change"
+				+ " (change_seq, employee_id, change_type, first_name, last_name, role, changed_at)"
+				+ " VALUES (?, ?, ?, ?, ?, ?, ?)", pending);
+		pending.clear();
+	}
+
+	/**
+	 * Returns the highest sequence a reader may be shown without risking that a
+	 * lower sequence still commits afterwards. Since changes commit in the order of
+	 * their sequences, that is the highest committed one.
+	 *
+	 * @return the highest safely readable sequence
+	 */
+	long horizon() {
+		return committed();
+	}
+
+	String toToken(long sequence) {
+		return epoch() + "." + sequence;
+	}
+
+	/**
+	 * Given a token handed out earlier, return the sequence to continue after
+	 *
+	 * @param token - a token returned by GET /employees/changes
+	 * @return the last sequence the client has seen
+	 */
+	long fromToken(String token) {
+		int dot = token.indexOf('.');
+		if (dot < 0 || !epoch().equals(token.substring(0, dot))) {
+			throw new InvalidChangeTokenException(token);
+		}
+
+		long sequence;
+		try {
+			sequence = Long.parseLong(token.substring(dot + 1));
+		} catch (NumberFormatException e) {
+			throw new InvalidChangeTokenException(token);
+		}
+
+		// Tombstones after this token may have been dropped by compaction
+		if (sequence < jdbcTemplate.queryForObject("SELECT purged_through FROM employee_change_epoch", Long.class)) {
+			throw new InvalidChangeTokenException(token);
+		}
+
+		return sequence;
+	}
+
+	@Scheduled(fixedDelayString = "${employee.changes.compaction-interval-ms:60000}")
+	void compact() {
+		long horizon = horizon();
+
+		int superseded = jdbcTemplate.update("DELETE FROM employee_change c WHERE c.change_seq <= ? AND EXISTS"
+				+ " (SELECT 1 FROM employee_change n WHERE n.employee_id = c.employee_id"
+				+ " AND n.change_seq > c.change_seq AND n.change_seq <= ?)", horizon, horizon);
+
+		Long purge = jdbcTemplate.queryForObject("SELECT MAX(change_seq) FROM employee_change"
+				+ " WHERE change_type = 'DELETED' AND change_seq <= ? AND changed_at <= ?", Long.class,
+				horizon, Timestamp.from(Instant.now().minus(tombstoneRetention)));
+		int tombstones = 0;
+		if (purge != null) {
+			// Raise the limit first so no reader continues past a tombstone being dropped
+			jdbcTemplate.update("UPDATE employee_change_epoch SET purged_through = GREATEST(purged_through, ?)", purge);
+			tombstones = jdbcTemplate.update("DELETE FROM employee_change WHERE change_type = 'DELETED' AND change_seq <= ?", purge);
+		}
+
+		if (superseded > 0 || tombstones > 0) {
+			log.info("Compacted employee change log: " + superseded + " superseded entries and "
+					+ tombstones + " tombstones removed");
+		}
+	}
+
+	/**
+	 * The highest committed sequence. Compaction may have dropped it if it was a
+	 * tombstone, but never past the sequence it dropped tombstones through.
+	 */
+	private long committed() {
+		return jdbcTemplate.queryForObject("SELECT GREATEST(COALESCE((SELECT MAX(change_seq) FROM employee_change), 0),"
+				+ " purged_through) FROM employee_change_epoch", Long.class);
+	}
+
+	private String epoch() {
+		if (epoch == null) {
+			epoch = jdbcTemplate.queryForObject("SELECT epoch FROM employee_change_epoch", String.class);
+		}
+		return epoch;
+	}
+
+	/**
+	 * Helper function that returns the appends of the current transaction not written
+	 * yet, and makes sure they are written before it commits
+	 */
+	private List<Object[]> pending() {
+		@SuppressWarnings("unchecked")
+		List<Object[]> pending = (List<Object[]>) TransactionSynchronizationManager.getResource(this);
+		if (pending != null) {
+			return pending;
+		}
+
+		List<Object[]> rows = new ArrayList<>();
+		TransactionSynchronizationManager.bindResource(this, rows);
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void beforeCommit(boolean readOnly) {
+				flush();
+			}
+
+			@Override
+			public void afterCompletion(int status) {
+				TransactionSynchronizationManager.unbindResourceIfPossible(EmployeeChangeLog.this);
+			}
+		});
+		return rows;
+	}
+}
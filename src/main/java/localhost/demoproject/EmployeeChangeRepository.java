@@ -0,0 +1,11 @@
+package localhost.demoproject;
+
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+interface EmployeeChangeRepository extends JpaRepository<EmployeeChange, Long>{
+	
+	List<EmployeeChange> findBySequenceGreaterThanAndSequenceLessThanEqualOrderBySequence(Long since, Long horizon, Pageable pageable);
+}
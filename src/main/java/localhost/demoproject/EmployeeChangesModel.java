@@ -0,0 +1,21 @@
+package localhost.demoproject;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import org.springframework.hateoas.RepresentationModel;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = false)
+public class EmployeeChangesModel extends RepresentationModel<EmployeeChangesModel>{
+	private List<EmployeeChange> changes;
+	// Pass as ?since= to get the changes after this page
+	private String token;
+	private boolean more;
+}
@@ -0,0 +1,19 @@
+package localhost.demoproject;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ControllerAdvice
+public class EmployeeConflictAdvice {
+	
+	@ResponseBody
+	@ExceptionHandler(OptimisticLockingFailureException.class)
+	@ResponseStatus(HttpStatus.CONFLICT)
+	String employeeConflictHandler(OptimisticLockingFailureException ex) {
+		return "Employee was changed by another request, retry with its current state";
+	}
+}
@@ -1,34 +1,62 @@
 package localhost.demoproject;
 
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
 import java.net.URI;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 
 import javax.validation.Valid;
 import javax.websocket.server.PathParam;
 
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.servlet.mvc.method.annotation.MvcUriComponentsBuilder;
 
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
+import com.fasterxml.jackson.databind.JsonNode;
+
 @RestController
 public class EmployeeController {
+	static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+	
 	private final EmployeeRepository repository;
 	private final EmployeeModelAssembler assembler;
+	private final EmployeeWriteBuffer writeBuffer;
+	private final EmployeeStats stats;
+	private final RoleDictionary roles;
+	private final EmployeeNearCache nearCache;
 	
-	EmployeeController(EmployeeRepository repository, EmployeeModelAssembler assembler){
+	EmployeeController(EmployeeRepository repository, EmployeeModelAssembler assembler,
+			Optional<EmployeeWriteBuffer> writeBuffer, EmployeeStats stats, RoleDictionary roles,
+			Optional<EmployeeNearCache> nearCache){
 		this.repository = repository;
 		this.assembler = assembler;
+		this.writeBuffer = writeBuffer.orElse(null);
+		this.stats = stats;
+		// The storage engines outside JPA keep roles as strings
+		this.roles = repository instanceof AbstractEmployeeRepository ? null : roles;
+		this.nearCache = nearCache.orElse(null);
 	}
 	
 	// Aggregate root
@@ -45,6 +73,42 @@ public class EmployeeController {
 		return new ResponseEntity<CollectionModel<EmployeeModel>>(assembler.toCollectionModel(employees), HttpStatus.OK);
 	}
 	
+	@GetMapping(path = "/employees", params = {"fields", "!role"})
+	/**
+	 * Returns a list of all employees with only the requested fields. Only the columns
+	 * of those fields are read from the repository.
+	 * 
+	 * @param fields - comma separated list of fields, e.g. "id,role"
+	 * @return a list of all employees holding only the requested fields
+	 */
+	HttpEntity<CollectionModel<EmployeeModel>> all(@RequestParam String fields) {
+		Set<EmployeeField> selected = EmployeeField.parse(fields);
+		List<Employee> employees = repository.findAllProjected(selected);
+		
+		return new ResponseEntity<CollectionModel<EmployeeModel>>(assembler.toCollectionModel(employees, selected), HttpStatus.OK);
+	}
+	
+	@GetMapping(path = "/employees", params = "role")
+	/**
+	 * Returns a list of all employees with the given role, optionally with only the
+	 * requested fields. Only the columns of those fields are read from the repository.
+	 * 
+	 * @param role - the role to filter on
+	 * @param fields - comma separated list of fields, or null for all fields
+	 * @return a list of the employees with the given role
+	 */
+	HttpEntity<CollectionModel<EmployeeModel>> byRole(@RequestParam String role,
+			@RequestParam(required = false) String fields) {
+		if (fields == null) {
+			return new ResponseEntity<CollectionModel<EmployeeModel>>(assembler.toCollectionModel(repository.findByRole(role)), HttpStatus.OK);
+		}
+		
+		Set<EmployeeField> selected = EmployeeField.parse(fields);
+		List<Employee> employees = repository.findByRoleProjected(role, selected);
+		
+		return new ResponseEntity<CollectionModel<EmployeeModel>>(assembler.toCollectionModel(employees, selected), HttpStatus.OK);
+	}
+	
 	/*
 	@GetMapping("/employees/{salary}")
 	HttpEntity<CollectionModel<EmployeeModel>> getBySalary(@PathParam(value = "salary") double salary){
@@ -64,13 +128,18 @@ public class EmployeeController {
 	
 	@PostMapping("/employees")
 	/**
-	 * Given a newEmployee, insert it into repository
+	 * Given a newEmployee, insert it into repository. In group-commit write mode the
+	 * insert shares a transaction with other concurrent inserts, but this still only
+	 * returns once the newEmployee has been committed.
 	 * 
 	 * @param - newEmployee an instance of an Employee entity
 	 * @return a employeeModel of the newEmployee inserted
 	 */
 	HttpEntity<?> newEmployee(@Valid @RequestBody Employee newEmployee){
-		EmployeeModel employeeModel = assembler.toModel(repository.save(newEmployee));
+		resolveRole(newEmployee.getRole());
+		Employee savedEmployee = writeBuffer != null ? writeBuffer.save(newEmployee) : repository.save(newEmployee);
+		written(null, savedEmployee, false);
+		EmployeeModel employeeModel = assembler.toModel(savedEmployee);
 		URI uri = MvcUriComponentsBuilder.fromController(getClass()).path("/employees/{id}").
 				buildAndExpand(employeeModel.getId()).toUri();
 
@@ -85,18 +154,53 @@ public class EmployeeController {
 	@GetMapping("/employees/{id}")
 	/**
 	 * Given id of an Employee, find an employee in the repository with that id
-	 * and return it
+	 * and return it. With the near-cache enabled the employee may come from the
+	 * cache of this instance.
 	 * 
 	 * @param id - Long value representing the id of an Employee 
 	 * @return the Employee with the given id
 	 */
 	HttpEntity<EmployeeModel> one(@PathVariable Long id) {
-		Employee employee = repository.findById(id)
+		Optional<Employee> found = nearCache != null ? nearCache.get(id, repository::findById) : repository.findById(id);
+		Employee employee = found
 		    		.orElseThrow(() -> new EmployeeNotFoundException(id));
 	    
 	    return new ResponseEntity<EmployeeModel>(assembler.toModel(employee), HttpStatus.OK);
 	}
 	
+	@GetMapping(path = "/employees/{id}", params = "fields")
+	/**
+	 * Given id of an Employee, return only the requested fields of that employee
+	 * 
+	 * @param id - Long value representing the id of an Employee 
+	 * @param fields - comma separated list of fields, e.g. "id,role"
+	 * @return the Employee with the given id holding only the requested fields
+	 */
+	HttpEntity<EmployeeModel> one(@PathVariable Long id, @RequestParam String fields) {
+		Set<EmployeeField> selected = EmployeeField.parse(fields);
+		Employee employee = repository.findProjectedById(id, selected)
+					.orElseThrow(() -> new EmployeeNotFoundException(id));
+		
+		return new ResponseEntity<EmployeeModel>(assembler.toModel(employee, selected), HttpStatus.OK);
+	}
+	
+	@GetMapping("/employees/stats")
+	/**
+	 * Returns the headcount per role. The counts are kept in memory by EmployeeStats,
+	 * so this does not read the employees.
+	 * 
+	 * @return the total headcount and the headcount per role
+	 */
+	HttpEntity<EmployeeStatsModel> stats() {
+		Map<String, Long> headcount = stats.headcount();
+		long total = headcount.values().stream().mapToLong(Long::longValue).sum();
+		
+		EmployeeStatsModel model = new EmployeeStatsModel(total, headcount);
+		model.add(linkTo(methodOn(EmployeeController.class).stats()).withSelfRel());
+		
+		return new ResponseEntity<EmployeeStatsModel>(model, HttpStatus.OK);
+	}
+	
 	@PutMapping("/employees/{id}")
 	/**
 	 * Given id of an employee, if an employee with the given id exists, replace 
@@ -107,15 +211,21 @@ public class EmployeeController {
 	 * @return the employeeModel of the newEmployee
 	 */
 	HttpEntity<?> replaceEmployee(@Valid @RequestBody Employee newEmployee, @PathVariable Long id){
+		resolveRole(newEmployee.getRole());
 		Employee updatedEmployee = repository.findById(id)
 				.map(employee -> {
+					String oldRole = employee.getRole();
 					employee.setName(newEmployee.getName());
 					employee.setRole(newEmployee.getRole());
-					return repository.save(employee);
+					Employee savedEmployee = repository.save(employee);
+					written(oldRole, savedEmployee, false);
+					return savedEmployee;
 				})
 				.orElseGet(() -> {
 					newEmployee.setId(id);
-					return repository.save(newEmployee);
+					Employee savedEmployee = repository.save(newEmployee);
+					written(null, savedEmployee, false);
+					return savedEmployee;
 				});
 		
 		EmployeeModel employeeModel = assembler.toModel(updatedEmployee);
@@ -127,6 +237,112 @@ public class EmployeeController {
 				.body(employeeModel);
 	}
 	
+	@PatchMapping(path = "/employees/{id}", consumes = {MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+	/**
+	 * Given id of an Employee and a JSON merge patch (RFC 7396), update only the
+	 * fields present in the patch. The employee is only written when a field actually
+	 * changed, and then only the changed columns are updated.
+	 * 
+	 * @param patch - JSON object holding the fields to change
+	 * @param id - Long value representing the id of an Employee to update
+	 * @return the employeeModel of the updated Employee
+	 */
+	HttpEntity<EmployeeModel> updateEmployee(@RequestBody JsonNode patch, @PathVariable Long id){
+		if (!patch.isObject()) {
+			throw new InvalidEmployeeFieldException("patch", "must be a JSON object");
+		}
+		
+		Employee employee = repository.findById(id)
+				.orElseThrow(() -> new EmployeeNotFoundException(id));
+		
+		String oldRole = employee.getRole();
+		if (applyPatch(employee, patch)) {
+			resolveRole(employee.getRole());
+			employee = repository.save(employee);
+			written(oldRole, employee, false);
+		}
+		
+		return new ResponseEntity<EmployeeModel>(assembler.toModel(employee), HttpStatus.OK);
+	}
+	
+	/**
+	 * Helper function that copies the writable fields of patch onto employee. Unknown
+	 * fields are ignored like they are for POST and PUT.
+	 * 
+	 * @param employee - Employee to modify
+	 * @param patch - JSON object holding the fields to change
+	 * @return true if any field of employee changed
+	 */
+	private boolean applyPatch(Employee employee, JsonNode patch) {
+		boolean changed = false;
+		
+		for (Iterator<Map.Entry<String, JsonNode>> fields = patch.fields(); fields.hasNext(); ) {
+			Map.Entry<String, JsonNode> field = fields.next();
+			String name = field.getKey();
+			
+			if (!"firstName".equals(name) && !"lastName".equals(name) && !"role".equals(name)) {
+				continue;
+			}
+			
+			// Removing a field (null) is not allowed since every field is required
+			JsonNode value = field.getValue();
+			if (!value.isTextual() || value.textValue().isEmpty()) {
+				throw new InvalidEmployeeFieldException(name, "must be a non-empty string");
+			}
+			
+			String text = value.textValue();
+			if ("firstName".equals(name) && !Objects.equals(employee.getFirstName(), text)) {
+				employee.setFirstName(text);
+				changed = true;
+			} else if ("lastName".equals(name) && !Objects.equals(employee.getLastName(), text)) {
+				employee.setLastName(text);
+				changed = true;
+			} else if ("role".equals(name) && !Objects.equals(employee.getRole(), text)) {
+				employee.setRole(text);
+				changed = true;
+			}
+		}
+		
+		return changed;
+	}
+	
+	/**
+	 * Helper function that adds role to the role dictionary if it is new, before the
+	 * transaction that writes it starts, see RoleDictionary
+	 */
+	private void resolveRole(String role) {
+		if (roles != null) {
+			roles.code(role);
+		}
+	}
+	
+	/**
+	 * Helper function that reports a write of employee to the stats and, if the
+	 * near-cache is enabled, to the near-caches of every instance. Writes of the
+	 * warm-up are rolled back, so they are not reported at all.
+	 * 
+	 * @param oldRole - role of the employee before the write, or null if it was created
+	 * @param employee - the Employee as saved, or as it was before being deleted
+	 * @param deleted - whether the employee was deleted
+	 */
+	private void written(String oldRole, Employee employee, boolean deleted) {
+		RequestAttributes request = RequestContextHolder.getRequestAttributes();
+		if (request != null && request.getAttribute(EmployeeWarmUpFilter.REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null) {
+			return;
+		}
+		
+		if (deleted) {
+			stats.deleted(employee.getRole());
+		} else if (oldRole == null) {
+			stats.created(employee.getRole());
+		} else {
+			stats.changed(oldRole, employee.getRole());
+		}
+		if (nearCache != null) {
+			nearCache.written(employee, deleted);
+		}
+	}
+	
 	@DeleteMapping("/employees/{id}")
 	/**
 	 * Given id of an Employee, delete employee from the repository if it exists
@@ -135,9 +351,11 @@ public class EmployeeController {
 	 * @return an empty body
 	 */
 	HttpEntity<?> deleteEmployee(@PathVariable Long id) { 
-		if (repository.existsById(id)) {
+		// Read the employee rather than only checking it exists, the stats need its role
+		repository.findById(id).ifPresent(employee -> {
 			repository.deleteById(id);
-		}
+			written(employee.getRole(), employee, true);
+		});
 		
 		return ResponseEntity.noContent().build();
 	}
@@ -0,0 +1,57 @@
+package localhost.demoproject;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Fields a client can select with {@code ?fields=} on the employee endpoints.
+ * {@code _links} is not a column, it asks for the HAL links and needs the id.
+ */
+enum EmployeeField {
+	ID("id"), FIRST_NAME("firstName"), LAST_NAME("lastName"), ROLE("role"), LINKS("_links");
+	
+	private final String name;
+	
+	EmployeeField(String name) {
+		this.name = name;
+	}
+	
+	String getName() {
+		return name;
+	}
+	
+	/**
+	 * Given the value of a fields request parameter, e.g. "id,role", return the
+	 * selected fields
+	 * 
+	 * @param fields - comma separated list of field names
+	 * @return the set of selected fields
+	 */
+	static Set<EmployeeField> parse(String fields) {
+		Set<EmployeeField> selected = EnumSet.noneOf(EmployeeField.class);
+		
+		for (String name : fields.split(",")) {
+			String trimmed = name.trim();
+			if (trimmed.isEmpty()) {
+				continue;
+			}
+			
+			EmployeeField field = null;
+			for (EmployeeField candidate : values()) {
+				if (candidate.name.equals(trimmed)) {
+					field = candidate;
+				}
+			}
+			if (field == null) {
+				throw new InvalidEmployeeFieldException(trimmed, "unknown field");
+			}
+			selected.add(field);
+		}
+		
+		if (selected.isEmpty()) {
+			throw new InvalidEmployeeFieldException("fields", "must name at least one field");
+		}
+		
+		return selected;
+	}
+}
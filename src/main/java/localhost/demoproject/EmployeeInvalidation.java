@@ -0,0 +1,13 @@
+package localhost.demoproject;
+
+import lombok.Value;
+
+/**
+ * Message telling every near-cache that the employee with the given id changed. Any
+ * copy older than version is stale.
+ */
+@Value
+class EmployeeInvalidation {
+	long id;
+	long version;
+}
@@ -7,7 +7,10 @@ import lombok.NoArgsConstructor;
 
 import org.springframework.hateoas.RepresentationModel;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 @Data
+@JsonInclude(JsonInclude.Include.NON_NULL) // fields left out by ?fields= are not serialized
 @NoArgsConstructor
 @AllArgsConstructor
 @EqualsAndHashCode(callSuper = false)
@@ -19,6 +22,9 @@ public class EmployeeModel extends RepresentationModel<EmployeeModel>{
 	//private double salary;
 	
 	public String getName() {
+		if (this.firstName == null || this.lastName == null) {
+			return null;
+		}
 		return this.firstName + " " + this.lastName;
 	}
 	
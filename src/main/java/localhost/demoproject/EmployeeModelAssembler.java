@@ -3,6 +3,10 @@ package localhost.demoproject;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.server.mvc.RepresentationModelAssemblerSupport;
 import org.springframework.stereotype.Component;
@@ -37,4 +41,44 @@ public class EmployeeModelAssembler extends RepresentationModelAssemblerSupport<
 		return employeeModels;
 	}
 	
+	/**
+	 * Given an employee read with only the selected fields, create a model holding
+	 * just those fields. Links are only added when _links was selected.
+	 * 
+	 * @param employee - Employee with the selected fields set
+	 * @param fields - fields selected by the client
+	 * @return the sparse employeeModel
+	 */
+	public EmployeeModel toModel(Employee employee, Set<EmployeeField> fields) {
+		EmployeeModel employeeModel = instantiateModel(employee);
+		
+		if (fields.contains(EmployeeField.LINKS)) {
+			employeeModel.add(linkTo(methodOn(EmployeeController.class).one(employee.getId())).withSelfRel(),
+					linkTo(methodOn(EmployeeController.class).all()).withRel("employees"));
+		}
+		
+		if (fields.contains(EmployeeField.ID)) {
+			employeeModel.setId(employee.getId());
+		}
+		employeeModel.setFirstName(employee.getFirstName());
+		employeeModel.setLastName(employee.getLastName());
+		employeeModel.setRole(employee.getRole());
+		
+		return employeeModel;
+	}
+	
+	public CollectionModel<EmployeeModel> toCollectionModel(Iterable<? extends Employee> entities, Set<EmployeeField> fields){
+		List<EmployeeModel> models = new ArrayList<>();
+		for (Employee employee : entities) {
+			models.add(toModel(employee, fields));
+		}
+		
+		CollectionModel<EmployeeModel> employeeModels = new CollectionModel<>(models);
+		if (fields.contains(EmployeeField.LINKS)) {
+			employeeModels.add(linkTo(methodOn(EmployeeController.class).all()).withSelfRel());
+		}
+		
+		return employeeModels;
+	}
+	
 }
@@ -0,0 +1,177 @@
+package localhost.demoproject;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Per-instance cache of employees read through GET /employees/{id}, kept coherent
+ * across instances by an {@link InvalidationBus}. Every write through
+ * {@link EmployeeController} publishes the id and new version of the employee.
+ *
+ * An invalidation leaves a tombstone holding its version instead of just removing
+ * the entry. A read that started before the write can finish after the invalidation
+ * arrived, and a late or reordered message can carry an older version than one
+ * already seen; neither can put stale data back since entries and tombstones only
+ * ever move to a higher version. Entries and tombstones expire after the ttl, which
+ * also bounds how long a lost message can leave stale data.
+ *
+ * Tombstones count against max-entries like cached copies. When the cache is full,
+ * room is made by dropping expired entries and then the oldest cached copy, which is
+ * only read again. If it is full of live tombstones, the invalidation is dropped like
+ * a lost message and the read is not cached. Every entry lives for the same ttl, so
+ * copies and tombstones are each queued in the order they expire and room is made
+ * from the heads of the queues, without scanning the cache.
+ *
+ * Enabled with {@code employee.near-cache.enabled=true}. Storage engines that do not
+ * keep a version only get the invalidation, not the ordering.
+ */
+@Component
+@ConditionalOnProperty(name = "employee.near-cache.enabled", havingValue = "true")
+class EmployeeNearCache {
+	private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+	// In the order they expire, including entries that were replaced since
+	private final Queue<Entry> copies = new ConcurrentLinkedQueue<>();
+	private final Queue<Entry> tombstones = new ConcurrentLinkedQueue<>();
+	private final InvalidationBus bus;
+	private final long ttlNanos;
+	private final int maxEntries;
+	
+	EmployeeNearCache(InvalidationBus bus, @Value("${employee.near-cache.ttl:30s}") Duration ttl,
+			@Value("${employee.near-cache.max-entries:10000}") int maxEntries) {
+		this.bus = bus;
+		this.ttlNanos = ttl.toNanos();
+		this.maxEntries = maxEntries;
+		bus.subscribe(invalidation -> invalidate(invalidation.getId(), invalidation.getVersion()));
+	}
+	
+	/**
+	 * Given an id, return a copy of the cached employee, or load it and cache it
+	 * unless a newer version was invalidated in the meantime
+	 * 
+	 * @param id - id of the Employee
+	 * @param loader - reads the Employee from the repository
+	 * @return the Employee, or empty if there is none with the given id
+	 */
+	Optional<Employee> get(Long id, Function<Long, Optional<Employee>> loader) {
+		long now = System.nanoTime();
+		Entry entry = entries.get(id);
+		if (entry != null && entry.employee != null && entry.expires - now > 0) {
+			return Optional.of(copy(entry.employee));
+		}
+		
+		Optional<Employee> loaded = loader.apply(id);
+		loaded.ifPresent(employee -> {
+			if (entries.containsKey(id) || hasRoom(now)) {
+				store(new Entry(id, copy(employee), employee.getVersion(), now + ttlNanos), now);
+			}
+		});
+		return loaded;
+	}
+	
+	/**
+	 * Given an employee just written by this instance, drop it from every near-cache
+	 * 
+	 * @param employee - the Employee as saved, or as it was before being deleted
+	 * @param deleted - whether the employee was deleted
+	 */
+	void written(Employee employee, boolean deleted) {
+		// No version is ever written after a delete, so every copy of this employee is stale
+		long version = deleted ? employee.getVersion() + 1 : employee.getVersion();
+		bus.publish(new EmployeeInvalidation(employee.getId(), version));
+	}
+	
+	void invalidate(long id, long version) {
+		long now = System.nanoTime();
+		if (!entries.containsKey(id) && !hasRoom(now)) {
+			return;
+		}
+		
+		// A tombstone also replaces a copy of the same version, which is the only
+		// version storage engines without versions ever report
+		store(new Entry(id, null, version, now + ttlNanos), now);
+	}
+	
+	int size() {
+		return entries.size();
+	}
+	
+	/**
+	 * Helper function that stores entry unless a newer version is cached, and queues
+	 * it for expiry
+	 * 
+	 * @param entry - the copy or tombstone to store
+	 * @param now - current System.nanoTime()
+	 */
+	private void store(Entry entry, long now) {
+		Entry stored = entries.merge(entry.id, entry, (current, next) -> next.version >= current.version || current.expires - now <= 0 ? next : current);
+		if (stored == entry) {
+			(entry.employee != null ? copies : tombstones).add(entry);
+		}
+		expire(copies, now);
+		expire(tombstones, now);
+	}
+	
+	/**
+	 * Helper function that makes room for one more entry if the cache is full, first
+	 * by dropping expired entries and then the oldest cached copies
+	 * 
+	 * @param now - current System.nanoTime()
+	 * @return whether there is room now
+	 */
+	private boolean hasRoom(long now) {
+		if (entries.size() < maxEntries) {
+			return true;
+		}
+		expire(copies, now);
+		expire(tombstones, now);
+		for (Entry oldest; entries.size() >= maxEntries && (oldest = copies.poll()) != null;) {
+			entries.remove(oldest.id, oldest);
+		}
+		return entries.size() < maxEntries;
+	}
+	
+	/**
+	 * Helper function that drops the expired entries at the head of queue, and the
+	 * ones that were replaced since they were queued
+	 * 
+	 * @param queue - copies or tombstones, in the order they expire
+	 * @param now - current System.nanoTime()
+	 */
+	private void expire(Queue<Entry> queue, long now) {
+		for (Entry head; (head = queue.peek()) != null && (head.expires - now <= 0 || entries.get(head.id) != head);) {
+			if (queue.remove(head)) {
+				entries.remove(head.id, head);
+			}
+		}
+	}
+	
+	private static Employee copy(Employee employee) {
+		Employee copy = new Employee(employee.getFirstName(), employee.getLastName(), employee.getRole());
+		copy.setId(employee.getId());
+		copy.setVersion(employee.getVersion());
+		return copy;
+	}
+	
+	private static final class Entry {
+		final long id;
+		// null for a tombstone
+		final Employee employee;
+		final long version;
+		final long expires;
+		
+		Entry(long id, Employee employee, long version, long expires) {
+			this.id = id;
+			this.employee = employee;
+			this.version = version;
+			this.expires = expires;
+		}
+	}
+}
@@ -2,6 +2,5 @@ package localhost.demoproject;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 
-interface EmployeeRepository extends JpaRepository<Employee, Long>{
-	
+interface EmployeeRepository extends JpaRepository<Employee, Long>, EmployeeRepositoryCustom{
 }
@@ -0,0 +1,27 @@
+package localhost.demoproject;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Queries that only read the columns a client asked for. The returned employees are
+ * detached and only have the selected fields set. Aggregates are computed by the
+ * database.
+ */
+interface EmployeeRepositoryCustom {
+	
+	List<Employee> findByRole(String role);
+	
+	List<Employee> findAllProjected(Set<EmployeeField> fields);
+	
+	List<Employee> findByRoleProjected(String role, Set<EmployeeField> fields);
+	
+	Optional<Employee> findProjectedById(Long id, Set<EmployeeField> fields);
+	
+	/**
+	 * @return the number of employees per role
+	 */
+	Map<String, Long> countPerRole();
+}
@@ -0,0 +1,150 @@
+package localhost.demoproject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+
+import org.springframework.transaction.annotation.Transactional;
+
+@Transactional(readOnly = true)
+class EmployeeRepositoryImpl implements EmployeeRepositoryCustom {
+	
+	@PersistenceContext
+	private EntityManager entityManager;
+	
+	private final RoleDictionary roleDictionary;
+	
+	EmployeeRepositoryImpl(RoleDictionary roleDictionary) {
+		this.roleDictionary = roleDictionary;
+	}
+	
+	@Override
+	public List<Employee> findByRole(String role) {
+		// A role no employee ever had must not be added to the dictionary by a query
+		if (roleDictionary.find(role) == null) {
+			return Collections.emptyList();
+		}
+		
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Employee> query = builder.createQuery(Employee.class);
+		Root<Employee> root = query.from(Employee.class);
+		query.where(builder.equal(root.get("role"), role));
+		
+		return entityManager.createQuery(query).getResultList();
+	}
+	
+	@Override
+	public List<Employee> findAllProjected(Set<EmployeeField> fields) {
+		CriteriaQuery<Tuple> query = entityManager.getCriteriaBuilder().createTupleQuery();
+		Root<Employee> root = query.from(Employee.class);
+		query.multiselect(columns(root, fields));
+		
+		List<Employee> employees = new ArrayList<>();
+		for (Tuple tuple : entityManager.createQuery(query).getResultList()) {
+			employees.add(toEmployee(tuple, fields));
+		}
+		
+		return employees;
+	}
+	
+	@Override
+	public List<Employee> findByRoleProjected(String role, Set<EmployeeField> fields) {
+		if (roleDictionary.find(role) == null) {
+			return Collections.emptyList();
+		}
+		
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Tuple> query = builder.createTupleQuery();
+		Root<Employee> root = query.from(Employee.class);
+		query.multiselect(columns(root, fields)).where(builder.equal(root.get("role"), role));
+		
+		List<Employee> employees = new ArrayList<>();
+		for (Tuple tuple : entityManager.createQuery(query).getResultList()) {
+			employees.add(toEmployee(tuple, fields));
+		}
+		
+		return employees;
+	}
+	
+	@Override
+	public Optional<Employee> findProjectedById(Long id, Set<EmployeeField> fields) {
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Tuple> query = builder.createTupleQuery();
+		Root<Employee> root = query.from(Employee.class);
+		query.multiselect(columns(root, fields)).where(builder.equal(root.get("id"), id));
+		
+		return entityManager.createQuery(query).getResultList().stream()
+				.findFirst()
+				.map(tuple -> toEmployee(tuple, fields));
+	}
+	
+	@Override
+	public Map<String, Long> countPerRole() {
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Tuple> query = builder.createTupleQuery();
+		Root<Employee> root = query.from(Employee.class);
+		query.multiselect(root.get("role").alias("role"), builder.count(root).alias("headcount"))
+				.groupBy(root.get("role"));
+		
+		Map<String, Long> headcount = new HashMap<>();
+		for (Tuple tuple : entityManager.createQuery(query).getResultList()) {
+			headcount.put(tuple.get("role", String.class), tuple.get("headcount", Long.class));
+		}
+		
+		return headcount;
+	}
+	
+	/**
+	 * Helper function that maps the selected fields to the columns to select. The id is
+	 * also selected when the links are wanted since they point at the employee.
+	 * 
+	 * @param root - the Employee root of the query
+	 * @param fields - fields selected by the client
+	 * @return selections for the query, aliased by field name
+	 */
+	private List<Selection<?>> columns(Root<Employee> root, Set<EmployeeField> fields) {
+		List<Selection<?>> columns = new ArrayList<>();
+		
+		for (EmployeeField field : fields) {
+			if (field != EmployeeField.LINKS) {
+				columns.add(root.get(field.getName()).alias(field.getName()));
+			}
+		}
+		if (fields.contains(EmployeeField.LINKS) && !fields.contains(EmployeeField.ID)) {
+			columns.add(root.get("id").alias(EmployeeField.ID.getName()));
+		}
+		
+		return columns;
+	}
+	
+	private Employee toEmployee(Tuple tuple, Set<EmployeeField> fields) {
+		Employee employee = new Employee();
+		
+		if (fields.contains(EmployeeField.ID) || fields.contains(EmployeeField.LINKS)) {
+			employee.setId(tuple.get(EmployeeField.ID.getName(), Long.class));
+		}
+		if (fields.contains(EmployeeField.FIRST_NAME)) {
+			employee.setFirstName(tuple.get(EmployeeField.FIRST_NAME.getName(), String.class));
+		}
+		if (fields.contains(EmployeeField.LAST_NAME)) {
+			employee.setLastName(tuple.get(EmployeeField.LAST_NAME.getName(), String.class));
+		}
+		if (fields.contains(EmployeeField.ROLE)) {
+			employee.setRole(tuple.get(EmployeeField.ROLE.getName(), String.class));
+		}
+		
+		return employee;
+	}
+}
@@ -0,0 +1,23 @@
+package localhost.demoproject;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+
+import lombok.Data;
+
+/**
+ * One entry of the role dictionary. Employees store the code of their role instead
+ * of the role itself, see {@link RoleDictionary}.
+ */
+@Data
+@Entity
+public class EmployeeRole {
+	
+	@Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Integer code;
+	@Column(nullable = false, unique = true)
+	private String name;
+}
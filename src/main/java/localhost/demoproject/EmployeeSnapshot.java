@@ -0,0 +1,157 @@
+package localhost.demoproject;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only columnar copy of employees for analytical scans. Each field is one
+ * array indexed by row: ids and role codes are primitive arrays, and the names are
+ * UTF-8 bytes back to back in a single array. Scans that only look at roles read
+ * one int per employee instead of following three object references.
+ *
+ * Roles are encoded with codes of the snapshot's own, in order of first appearance,
+ * so building a snapshot never reads or writes the {@link RoleDictionary} table. Each
+ * role is held once, as the instance of the first row that had it.
+ */
+final class EmployeeSnapshot {
+	private final String[] roles;
+	private final Map<String, Integer> codes;
+	private final long[] ids;
+	private final int[] roleCodes;
+	private final byte[] names;
+	// Row r has its first name at [2r, 2r + 1) and its last name at [2r + 1, 2r + 2)
+	private final int[] nameOffsets;
+
+	private EmployeeSnapshot(Map<String, Integer> codes, long[] ids, int[] roleCodes, byte[] names, int[] nameOffsets) {
+		this.roles = new String[codes.size()];
+		codes.forEach((role, code) -> roles[code] = role);
+		this.codes = codes;
+		this.ids = ids;
+		this.roleCodes = roleCodes;
+		this.names = names;
+		this.nameOffsets = nameOffsets;
+	}
+
+	/**
+	 * Given employees, copy them into a snapshot, in iteration order
+	 *
+	 * @param employees - Employees with an id, first name, last name and role
+	 * @return a snapshot holding one row per employee
+	 */
+	static EmployeeSnapshot of(Collection<Employee> employees) {
+		Map<String, Integer> codes = new HashMap<>();
+		int size = employees.size();
+		long[] ids = new long[size];
+		int[] roleCodes = new int[size];
+		int[] nameOffsets = new int[2 * size + 1];
+		ByteArrayOutputStream names = new ByteArrayOutputStream(16 * size);
+
+		int row = 0;
+		for (Employee employee : employees) {
+			ids[row] = employee.getId();
+			roleCodes[row] = codes.computeIfAbsent(employee.getRole(), role -> codes.size());
+			byte[] firstName = employee.getFirstName().getBytes(StandardCharsets.UTF_8);
+			byte[] lastName = employee.getLastName().getBytes(StandardCharsets.UTF_8);
+			names.write(firstName, 0, firstName.length);
+			nameOffsets[2 * row + 1] = names.size();
+			names.write(lastName, 0, lastName.length);
+			nameOffsets[2 * row + 2] = names.size();
+			row++;
+		}
+
+		return new EmployeeSnapshot(codes, ids, roleCodes, names.toByteArray(), nameOffsets);
+	}
+
+	int size() {
+		return ids.length;
+	}
+
+	long id(int row) {
+		return ids[row];
+	}
+
+	String firstName(int row) {
+		return name(2 * row);
+	}
+
+	String lastName(int row) {
+		return name(2 * row + 1);
+	}
+
+	String role(int row) {
+		return roles[roleCodes[row]];
+	}
+
+	/**
+	 * @return a new Employee holding the fields of row
+	 */
+	Employee employee(int row) {
+		Employee employee = new Employee(firstName(row), lastName(row), role(row));
+		employee.setId(ids[row]);
+		return employee;
+	}
+
+	/**
+	 * @return the number of employees per role
+	 */
+	Map<String, Long> countPerRole() {
+		long[] counts = new long[roles.length];
+		for (int code : roleCodes) {
+			counts[code]++;
+		}
+
+		Map<String, Long> headcount = new HashMap<>();
+		for (int code = 0; code < roles.length; code++) {
+			headcount.put(roles[code], counts[code]);
+		}
+		return headcount;
+	}
+
+	/**
+	 * @return the ids of the employees with role, in row order
+	 */
+	long[] idsWithRole(String role) {
+		Integer code = codes.get(role);
+		if (code == null) {
+			return new long[0];
+		}
+
+		long[] matches = new long[16];
+		int found = 0;
+		for (int row = 0; row < roleCodes.length; row++) {
+			if (roleCodes[row] == code) {
+				if (found == matches.length) {
+					matches = Arrays.copyOf(matches, found * 2);
+				}
+				matches[found++] = ids[row];
+			}
+		}
+		return Arrays.copyOf(matches, found);
+	}
+
+	/**
+	 * @return new Employees holding the rows with role, in row order
+	 */
+	List<Employee> employeesWithRole(String role) {
+		List<Employee> employees = new ArrayList<>();
+		Integer code = codes.get(role);
+		if (code != null) {
+			for (int row = 0; row < roleCodes.length; row++) {
+				if (roleCodes[row] == code) {
+					employees.add(employee(row));
+				}
+			}
+		}
+		return employees;
+	}
+
+	private String name(int index) {
+		return new String(names, nameOffsets[index], nameOffsets[index + 1] - nameOffsets[index], StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,108 @@
+package localhost.demoproject;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Headcount per role, kept in memory so GET /employees/stats does not have to read
+ * every employee. The counts are built from the repository once the application is
+ * ready, then {@link EmployeeController} reports every create, replace and delete.
+ *
+ * Writes that do not go through the controller make the counts drift.
+ * {@link #reconcile()} periodically recounts with a GROUP BY and replaces the counts.
+ * Writes reported while it counts are applied again on top of the recount, so a
+ * busy instance still loads its counts. A write that committed before the count but
+ * was reported after it is counted twice, until a later round recounts it.
+ */
+@Component
+@Slf4j
+class EmployeeStats {
+	private final EmployeeRepository repository;
+	private final Object reconciliation = new Object();
+	private Map<String, Long> headcount = new HashMap<>();
+	// Deltas reported while reconcile() counts, null when it is not counting
+	private Map<String, Long> pending;
+
+	EmployeeStats(EmployeeRepository repository) {
+		this.repository = repository;
+	}
+
+	synchronized void created(String role) {
+		add(role, 1);
+	}
+
+	/**
+	 * Given the role of an employee before and after a replace or patch, move the
+	 * employee from one count to the other
+	 */
+	synchronized void changed(String oldRole, String newRole) {
+		if (!Objects.equals(oldRole, newRole)) {
+			add(oldRole, -1);
+			add(newRole, 1);
+		}
+	}
+
+	synchronized void deleted(String role) {
+		add(role, -1);
+	}
+
+	/**
+	 * @return the number of employees per role, sorted by role
+	 */
+	synchronized Map<String, Long> headcount() {
+		return new TreeMap<>(headcount);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(initialDelayString = "${employee.stats.reconcile-interval-ms:60000}",
+			fixedDelayString = "${employee.stats.reconcile-interval-ms:60000}")
+	void reconcile() {
+		synchronized (reconciliation) {
+			synchronized (this) {
+				pending = new HashMap<>();
+			}
+
+			Map<String, Long> counted;
+			try {
+				counted = new HashMap<>(repository.countPerRole());
+			} catch (RuntimeException e) {
+				synchronized (this) {
+					pending = null;
+				}
+				throw e;
+			}
+
+			synchronized (this) {
+				pending.forEach((role, delta) -> add(counted, role, delta));
+				pending = null;
+				if (!counted.equals(headcount)) {
+					log.info("Reconciled employee stats from " + headcount + " to " + counted);
+				}
+				headcount = counted;
+			}
+		}
+	}
+
+	private void add(String role, long delta) {
+		add(headcount, role, delta);
+		if (pending != null && role != null) {
+			pending.merge(role, delta, Long::sum);
+		}
+	}
+
+	private static void add(Map<String, Long> counts, String role, long delta) {
+		// A count missing for a delete is drift that the next reconciliation repairs
+		if (role != null && (delta > 0 || counts.containsKey(role))) {
+			counts.merge(role, delta, (count, d) -> count + d > 0 ? count + d : null);
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package localhost.demoproject;
+
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import org.springframework.hateoas.RepresentationModel;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = false)
+public class EmployeeStatsModel extends RepresentationModel<EmployeeStatsModel>{
+	private long headcount;
+	private Map<String, Long> headcountByRole;
+}
@@ -0,0 +1,280 @@
+package localhost.demoproject;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Sends synthetic requests to this instance over HTTP once it started, so the
+ * controller, Jackson and Hibernate paths are compiled before real traffic arrives.
+ * Until the warm-up is over this health indicator reports OUT_OF_SERVICE, which makes
+ * /actuator/health answer 503 and keeps the instance out of the load balancer.
+ *
+ * Requests go out in rounds of employee.warm-up.requests-per-round. The warm-up ends
+ * once the throughput of the last rounds is within employee.warm-up.tolerance of each
+ * other, or when employee.warm-up.max-time has passed.
+ *
+ * Writes carry a header {@link EmployeeWarmUpFilter} recognizes, which runs them in a
+ * transaction that is flushed and then rolled back. Writes that would not be rolled
+ * back are left out: POST in group-commit mode, which commits on another thread, and
+ * every write with a storage engine outside JPA transactions. PATCH is left out too,
+ * since HttpURLConnection cannot send it.
+ *
+ * PUT and DELETE go to a scratch employee the warm-up inserts for itself, so they
+ * never lock an employee other instances are serving. It is written with plain SQL,
+ * which leaves no entry in the change log, and deleted again when the warm-up ends.
+ * The controller does not report warm-up writes to the stats or the near-caches.
+ */
+@Component
+@ConditionalOnProperty(name = "employee.warm-up.enabled", havingValue = "true")
+@Slf4j
+class EmployeeWarmUp implements HealthIndicator {
+	static final String HEADER = "X-Employee-Warm-Up";
+	private static final int STABLE_ROUNDS = 3;
+
+	private final String token = UUID.randomUUID().toString();
+	private final RestTemplate rest = new RestTemplate();
+	private final WebServerApplicationContext context;
+	private final EmployeeStats stats;
+	private final JdbcTemplate jdbcTemplate;
+	private final RoleDictionary roles;
+	private final boolean writesRollBack;
+	private final boolean postsRollBack;
+	private final long maxNanos;
+	private final int requestsPerRound;
+	private final double tolerance;
+
+	private volatile Health health = Health.outOfService().withDetail("rounds", 0).build();
+	private volatile boolean stopped;
+
+	EmployeeWarmUp(WebServerApplicationContext context, EmployeeRepository repository, EmployeeStats stats,
+			DataSource dataSource, RoleDictionary roles, Optional<EmployeeWriteBuffer> writeBuffer,
+			@Value("${employee.warm-up.max-time:60s}") Duration maxTime,
+			@Value("${employee.warm-up.requests-per-round:500}") int requestsPerRound,
+			@Value("${employee.warm-up.tolerance:0.1}") double tolerance) {
+		this.context = context;
+		this.stats = stats;
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.roles = roles;
+		this.writesRollBack = !(repository instanceof AbstractEmployeeRepository);
+		this.postsRollBack = writesRollBack && !writeBuffer.isPresent();
+		this.maxNanos = maxTime.toNanos();
+		this.requestsPerRound = requestsPerRound;
+		this.tolerance = tolerance;
+
+		rest.setErrorHandler(new DefaultResponseErrorHandler() {
+			@Override
+			public boolean hasError(ClientHttpResponse response) {
+				// 404s are part of the traffic, errors are counted by run()
+				return false;
+			}
+		});
+	}
+
+	@Override
+	public Health health() {
+		return health;
+	}
+
+	/**
+	 * Given the value of the warm-up header, tell if the request was sent by the warm-up
+	 */
+	boolean isWarmUpRequest(String header) {
+		return token.equals(header);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	void start() {
+		Thread warmUp = new Thread(() -> {
+			try {
+				run();
+			} catch (RuntimeException e) {
+				log.error("Warm-up failed, reporting ready without it", e);
+				health = Health.up().withDetail("failed", e.toString()).build();
+			}
+		}, "employee-warm-up");
+		warmUp.setDaemon(true);
+		warmUp.start();
+	}
+
+	@PreDestroy
+	void stop() {
+		stopped = true;
+	}
+
+	private void run() {
+		String base = "http://localhost:" + context.getWebServer().getPort() + "/employees";
+		Long scratch = null;
+		Health result;
+		try {
+			JsonNode employees = rest.exchange(base, HttpMethod.GET, new HttpEntity<>(headers()), JsonNode.class).getBody()
+					.path("_embedded").path("employeeModelList");
+			String role = employees.size() > 0 ? employees.get(0).path("role").asText() : "warm-up";
+			if (writesRollBack) {
+				scratch = insertScratch(role);
+			}
+			result = run(requests(base, employees, role, scratch));
+		} finally {
+			if (scratch != null) {
+				jdbcTemplate.update("DELETE FROM employee WHERE id = ?", scratch);
+			}
+		}
+
+		// A reconcile round during the warm-up may have counted the scratch employee
+		stats.reconcile();
+		health = result;
+	}
+
+	/**
+	 * Helper function that sends rounds of requests until the throughput is stable
+	 * 
+	 * @return the health to report once the warm-up is cleaned up
+	 */
+	private Health run(List<Request> requests) {
+		if (!writesRollBack) {
+			log.info("Warm-up only reads, the storage engine does not roll back writes");
+		} else if (!postsRollBack) {
+			log.info("Warm-up leaves out POST, group-commit inserts are not rolled back");
+		}
+
+		List<Double> throughputs = new ArrayList<>();
+		long errors = 0;
+		long start = System.nanoTime();
+		boolean stable = false;
+
+		while (!stable && !stopped && System.nanoTime() - start < maxNanos) {
+			long roundStart = System.nanoTime();
+			for (int i = 0; i < requestsPerRound; i++) {
+				if (requests.get(i % requests.size()).send() >= 500) {
+					errors++;
+				}
+			}
+			double throughput = requestsPerRound * 1e9 / (System.nanoTime() - roundStart);
+			throughputs.add(throughput);
+			log.debug(String.format("Warm-up round %d: %.0f requests/s", throughputs.size(), throughput));
+			health = Health.outOfService().withDetail("rounds", throughputs.size()).build();
+
+			stable = isStable(throughputs);
+		}
+
+		long millis = (System.nanoTime() - start) / 1000000;
+		double first = throughputs.isEmpty() ? 0 : throughputs.get(0);
+		double last = throughputs.isEmpty() ? 0 : throughputs.get(throughputs.size() - 1);
+		log.info(String.format("Warm-up %s after %d rounds of %d requests in %d ms: %.0f requests/s in the first"
+				+ " round, %.0f in the last, %d server errors", stable ? "stable" : "stopped", throughputs.size(),
+				requestsPerRound, millis, first, last, errors));
+		return Health.up()
+				.withDetail("stable", stable)
+				.withDetail("rounds", throughputs.size())
+				.withDetail("millis", millis)
+				.withDetail("firstRoundRequestsPerSecond", Math.round(first))
+				.withDetail("lastRoundRequestsPerSecond", Math.round(last))
+				.withDetail("serverErrors", errors)
+				.build();
+	}
+
+	private boolean isStable(List<Double> throughputs) {
+		if (throughputs.size() < STABLE_ROUNDS) {
+			return false;
+		}
+
+		List<Double> last = throughputs.subList(throughputs.size() - STABLE_ROUNDS, throughputs.size());
+		return Collections.max(last) <= Collections.min(last) * (1 + tolerance);
+	}
+
+	/**
+	 * Helper function that inserts the employee the warm-up writes to, bypassing JPA
+	 * so it does not reach the change log
+	 * 
+	 * @return the id of the scratch employee
+	 */
+	private long insertScratch(String role) {
+		long id = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR hibernate_sequence", Long.class);
+		jdbcTemplate.update("INSERT INTO employee (id, first_name, last_name, role_code, version) VALUES (?, ?, ?, ?, 0)",
+				id, "Warm", "Up", roles.code(role));
+		return id;
+	}
+
+	/**
+	 * Helper function that builds the mix of requests sent every round. Reads are
+	 * aimed at an existing employee if there is one, writes at the scratch employee.
+	 */
+	private List<Request> requests(String base, JsonNode employees, String role, Long scratch) {
+		long id = employees.size() > 0 ? employees.get(0).path("id").asLong() : 0;
+		String employee = "{\"firstName\":\"Warm\",\"lastName\":\"Up\",\"role\":\"" + role.replace("\"", "\\\"") + "\"}";
+
+		List<Request> requests = new ArrayList<>();
+		requests.add(new Request(HttpMethod.GET, base, null));
+		requests.add(new Request(HttpMethod.GET, base + "?fields=id,firstName", null));
+		requests.add(new Request(HttpMethod.GET, base + "?role={role}", null, role));
+		requests.add(new Request(HttpMethod.GET, base + "/" + id, null));
+		requests.add(new Request(HttpMethod.GET, base + "/" + id + "?fields=id,role", null));
+		requests.add(new Request(HttpMethod.GET, base + "/stats", null));
+		if (postsRollBack) {
+			requests.add(new Request(HttpMethod.POST, base, employee));
+		}
+		if (scratch != null) {
+			requests.add(new Request(HttpMethod.PUT, base + "/" + scratch, employee));
+			requests.add(new Request(HttpMethod.DELETE, base + "/" + scratch, null));
+		}
+		return requests;
+	}
+
+	private HttpHeaders headers() {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HEADER, token);
+		return headers;
+	}
+
+	private class Request {
+		private final HttpMethod method;
+		private final String url;
+		private final HttpEntity<String> entity;
+		private final Object[] variables;
+
+		Request(HttpMethod method, String url, String body, Object... variables) {
+			HttpHeaders headers = headers();
+			if (body != null) {
+				headers.setContentType(MediaType.APPLICATION_JSON);
+			}
+			this.method = method;
+			this.url = url;
+			this.entity = new HttpEntity<>(body, headers);
+			this.variables = variables;
+		}
+
+		/**
+		 * @return the status code of the response
+		 */
+		int send() {
+			return rest.exchange(url, method, entity, String.class, variables).getStatusCodeValue();
+		}
+	}
+}
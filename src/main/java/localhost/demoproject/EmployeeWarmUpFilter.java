@@ -0,0 +1,60 @@
+package localhost.demoproject;
+
+import java.io.IOException;
+
+import javax.persistence.EntityManager;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Marks the requests sent by {@link EmployeeWarmUp}, and runs its writes in a
+ * transaction the repository joins. The transaction is flushed so the SQL is still
+ * sent, then rolled back so nothing is kept.
+ */
+@Component
+@ConditionalOnProperty(name = "employee.warm-up.enabled", havingValue = "true")
+class EmployeeWarmUpFilter extends OncePerRequestFilter {
+	static final String REQUEST_ATTRIBUTE = EmployeeWarmUpFilter.class.getName();
+
+	private final EmployeeWarmUp warmUp;
+	private final PlatformTransactionManager transactionManager;
+	private final EntityManager entityManager;
+
+	EmployeeWarmUpFilter(EmployeeWarmUp warmUp, PlatformTransactionManager transactionManager, EntityManager entityManager) {
+		this.warmUp = warmUp;
+		this.transactionManager = transactionManager;
+		this.entityManager = entityManager;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		if (!warmUp.isWarmUpRequest(request.getHeader(EmployeeWarmUp.HEADER))) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		request.setAttribute(REQUEST_ATTRIBUTE, Boolean.TRUE);
+		if ("GET".equals(request.getMethod())) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		TransactionStatus transaction = transactionManager.getTransaction(new DefaultTransactionDefinition());
+		try {
+			chain.doFilter(request, response);
+			entityManager.flush();
+		} finally {
+			transactionManager.rollback(transaction);
+		}
+	}
+}
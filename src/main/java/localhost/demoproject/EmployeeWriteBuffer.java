@@ -0,0 +1,195 @@
+package localhost.demoproject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.PreDestroy;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Group commit for new employees. Callers block in {@link #save(Employee)} while their
+ * employee waits in a queue; a single writer thread drains the queue into one
+ * transaction every maxDelayMillis or maxBatchSize rows, whichever comes first, and
+ * releases each caller with its generated id once the transaction has committed.
+ *
+ * Enabled with {@code employee.write-mode=group-commit}.
+ */
+@Component
+@ConditionalOnProperty(name = "employee.write-mode", havingValue = "group-commit")
+@Slf4j
+class EmployeeWriteBuffer {
+	private final EmployeeRepository repository;
+	private final TransactionTemplate transactionTemplate;
+	private final BlockingQueue<PendingWrite> queue;
+	private final int maxBatchSize;
+	private final long maxDelayNanos;
+	private final Thread writer;
+	private volatile boolean running = true;
+
+	EmployeeWriteBuffer(EmployeeRepository repository, PlatformTransactionManager transactionManager,
+			@Value("${employee.group-commit.max-batch-size:100}") int maxBatchSize,
+			@Value("${employee.group-commit.max-delay-ms:5}") long maxDelayMillis,
+			@Value("${employee.group-commit.queue-capacity:10000}") int queueCapacity) {
+		this.repository = repository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.queue = new LinkedBlockingQueue<>(queueCapacity);
+		this.maxBatchSize = maxBatchSize;
+		this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+		this.writer = new Thread(this::run, "employee-group-commit");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * Given a validated newEmployee, queue it for the next group commit and wait
+	 * until that commit has happened
+	 *
+	 * @param newEmployee - an Employee without an id
+	 * @return the saved Employee carrying its generated id
+	 */
+	Employee save(Employee newEmployee) {
+		if (!running) {
+			throw new IllegalStateException("Employee write buffer is shut down");
+		}
+
+		PendingWrite write = new PendingWrite(newEmployee);
+		try {
+			queue.put(write);
+			while (true) {
+				try {
+					return write.result.get(1, TimeUnit.SECONDS);
+				} catch (TimeoutException e) {
+					// Queued after the writer stopped, nothing else would release it
+					if (!writer.isAlive()) {
+						failPending();
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for group commit", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	@PreDestroy
+	void shutdown() throws InterruptedException {
+		running = false;
+		writer.interrupt();
+		writer.join(TimeUnit.SECONDS.toMillis(10));
+		if (!writer.isAlive()) {
+			failPending();
+		}
+	}
+
+	/**
+	 * Helper function that fails the writes still queued once the writer has stopped
+	 */
+	private void failPending() {
+		List<PendingWrite> pending = new ArrayList<>();
+		queue.drainTo(pending);
+		for (PendingWrite write : pending) {
+			write.result.completeExceptionally(new IllegalStateException("Employee write buffer is shut down"));
+		}
+	}
+
+	private void run() {
+		List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+
+		while (running || !queue.isEmpty()) {
+			try {
+				collect(batch);
+			} catch (InterruptedException e) {
+				// Shutting down: commit whatever is already queued
+				queue.drainTo(batch, maxBatchSize - batch.size());
+			}
+
+			if (!batch.isEmpty()) {
+				flush(batch);
+				batch.clear();
+			}
+		}
+	}
+
+	/**
+	 * Helper function that blocks for the first write, then keeps collecting until
+	 * the batch is full or the first write has waited maxDelayNanos
+	 *
+	 * @param batch - list to add the collected writes to
+	 */
+	private void collect(List<PendingWrite> batch) throws InterruptedException {
+		batch.add(queue.take());
+		long deadline = System.nanoTime() + maxDelayNanos;
+
+		while (batch.size() < maxBatchSize) {
+			if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+				continue;
+			}
+
+			PendingWrite next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+			if (next == null) {
+				return;
+			}
+			batch.add(next);
+		}
+	}
+
+	/**
+	 * Helper function that saves the batch in one transaction. If that transaction
+	 * fails, every write is retried on its own so only the offending rows fail.
+	 *
+	 * @param batch - writes to commit together
+	 */
+	private void flush(List<PendingWrite> batch) {
+		List<Employee> employees = new ArrayList<>(batch.size());
+		for (PendingWrite write : batch) {
+			employees.add(write.employee);
+		}
+
+		List<Employee> saved;
+		try {
+			saved = transactionTemplate.execute(status -> repository.saveAll(employees));
+		} catch (RuntimeException e) {
+			log.warn("Group commit of " + batch.size() + " employees failed, retrying individually", e);
+			for (PendingWrite write : batch) {
+				write.employee.setId(null);
+				try {
+					write.result.complete(repository.save(write.employee));
+				} catch (RuntimeException single) {
+					write.result.completeExceptionally(single);
+				}
+			}
+			return;
+		}
+
+		for (int i = 0; i < batch.size(); i++) {
+			batch.get(i).result.complete(saved.get(i));
+		}
+	}
+
+	private static class PendingWrite {
+		final Employee employee;
+		final CompletableFuture<Employee> result = new CompletableFuture<>();
+
+		PendingWrite(Employee employee) {
+			this.employee = employee;
+		}
+	}
+}
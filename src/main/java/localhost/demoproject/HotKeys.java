@@ -0,0 +1,180 @@
+package localhost.demoproject;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import lombok.Value;
+
+/**
+ * Most frequent keys over a sliding time window. The window is a ring of buckets,
+ * each covering window / buckets of time with its own {@link CountMinSketch} and its
+ * own top-K candidates, and the bucket whose time has passed is reused. The top keys
+ * of the window are the candidates of the live buckets ranked by their summed
+ * estimates.
+ *
+ * Recording a key costs one sketch update; the candidates are only locked when the
+ * estimate beats the smallest candidate, which cold keys never do, and the key is not
+ * already a candidate above it, which hot keys mostly are. A candidate's estimate is
+ * only kept up to date once it could be the smallest.
+ */
+final class HotKeys {
+	private final Bucket[] buckets;
+	private final long bucketMillis;
+	private final int top;
+	private final LongSupplier clock;
+
+	/**
+	 * @param top - number of keys to report
+	 * @param windowMillis - length of the sliding window
+	 * @param buckets - number of buckets the window is split in
+	 * @param clock - current time in milliseconds
+	 */
+	HotKeys(int top, long windowMillis, int buckets, LongSupplier clock) {
+		this.top = top;
+		this.bucketMillis = Math.max(1, windowMillis / buckets);
+		this.clock = clock;
+		this.buckets = new Bucket[buckets];
+		for (int i = 0; i < buckets; i++) {
+			this.buckets[i] = new Bucket();
+		}
+	}
+
+	void record(long key) {
+		Bucket bucket = bucket();
+		int estimate = bucket.sketch.add(mix(key));
+		if (estimate > bucket.floor && !bucket.aboveFloor(key)) {
+			bucket.offer(key, estimate, top);
+		}
+	}
+
+	void record(String key) {
+		Bucket bucket = bucket();
+		int estimate = bucket.sketch.add(mix(key.hashCode()));
+		if (estimate > bucket.floor && !bucket.aboveFloor(key)) {
+			bucket.offer(key, estimate, top);
+		}
+	}
+
+	/**
+	 * @return the top keys of the window, most frequent first
+	 */
+	List<HotKey> top() {
+		long now = clock.getAsLong() / bucketMillis;
+		List<Bucket> live = new ArrayList<>();
+		Set<Object> candidates = new HashSet<>();
+		for (Bucket bucket : buckets) {
+			if (bucket.period.get() > now - buckets.length) {
+				live.add(bucket);
+				synchronized (bucket) {
+					candidates.addAll(bucket.candidates.keySet());
+				}
+			}
+		}
+
+		List<HotKey> keys = new ArrayList<>();
+		for (Object candidate : candidates) {
+			long hash = mix(candidate instanceof Long ? (Long) candidate : candidate.hashCode());
+			long estimate = 0;
+			for (Bucket bucket : live) {
+				estimate += bucket.sketch.estimate(hash);
+			}
+			keys.add(new HotKey(candidate.toString(), estimate));
+		}
+
+		keys.sort((a, b) -> Long.compare(b.getEstimate(), a.getEstimate()));
+		return keys.size() > top ? new ArrayList<>(keys.subList(0, top)) : keys;
+	}
+
+	long windowMillis() {
+		return bucketMillis * buckets.length;
+	}
+
+	private Bucket bucket() {
+		long period = clock.getAsLong() / bucketMillis;
+		Bucket bucket = buckets[(int) (period % buckets.length)];
+		bucket.rotate(period);
+		return bucket;
+	}
+
+	/**
+	 * SplitMix64 finalizer, so that ids close together land in unrelated counters
+	 */
+	private static long mix(long key) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+		hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+		return hash ^ (hash >>> 31);
+	}
+
+	@Value
+	static class HotKey {
+		String key;
+		long estimate;
+	}
+
+	private static final class Bucket {
+		final CountMinSketch sketch = new CountMinSketch(4, 2048);
+		final AtomicLong period = new AtomicLong(Long.MIN_VALUE);
+		final Map<Object, Integer> candidates = new ConcurrentHashMap<>();
+		// Estimate a key has to beat to become a candidate, 0 until there are top candidates
+		volatile int floor;
+
+		/**
+		 * Clears the bucket when it is reused for a new period. Keys counted by
+		 * other threads during the clear may be lost, which only lowers estimates.
+		 */
+		void rotate(long now) {
+			long current = period.get();
+			if (current < now && period.compareAndSet(current, now)) {
+				sketch.clear();
+				synchronized (this) {
+					candidates.clear();
+					floor = 0;
+				}
+			}
+		}
+
+		/**
+		 * Whether key is a candidate whose last offered estimate is above the floor,
+		 * so a higher one cannot move the floor
+		 */
+		boolean aboveFloor(Object key) {
+			Integer estimate = candidates.get(key);
+			return estimate != null && estimate > floor;
+		}
+
+		synchronized void offer(Object key, int estimate, int top) {
+			candidates.put(key, estimate);
+			if (candidates.size() < top) {
+				return;
+			}
+
+			// One pass finds both the coldest candidate and the one above it
+			Object coldest = null;
+			int smallest = Integer.MAX_VALUE;
+			int second = Integer.MAX_VALUE;
+			for (Map.Entry<Object, Integer> candidate : candidates.entrySet()) {
+				int value = candidate.getValue();
+				if (value < smallest) {
+					second = smallest;
+					smallest = value;
+					coldest = candidate.getKey();
+				} else if (value < second) {
+					second = value;
+				}
+			}
+			if (candidates.size() > top) {
+				candidates.remove(coldest);
+				floor = second;
+			} else {
+				floor = smallest;
+			}
+		}
+	}
+}
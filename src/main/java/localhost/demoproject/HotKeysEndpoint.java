@@ -0,0 +1,31 @@
+package localhost.demoproject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint at /actuator/hotkeys listing the most read employee ids and query
+ * shapes of the sliding window, with their estimated number of requests
+ */
+@Component
+@Endpoint(id = "hotkeys")
+class HotKeysEndpoint {
+	private final EmployeeAccessInterceptor accessInterceptor;
+
+	HotKeysEndpoint(EmployeeAccessInterceptor accessInterceptor) {
+		this.accessInterceptor = accessInterceptor;
+	}
+
+	@ReadOperation
+	public Map<String, Object> hotKeys() {
+		Map<String, Object> hotKeys = new LinkedHashMap<>();
+		hotKeys.put("windowSeconds", accessInterceptor.ids().windowMillis() / 1000);
+		hotKeys.put("ids", accessInterceptor.ids().top());
+		hotKeys.put("queries", accessInterceptor.queries().top());
+		return hotKeys;
+	}
+}
@@ -0,0 +1,8 @@
+package localhost.demoproject;
+
+@SuppressWarnings("serial")
+public class InvalidBulkRequestException extends RuntimeException{
+	InvalidBulkRequestException(String field, String reason){
+		super("Invalid bulk request " + field + ": " + reason);
+	}
+}
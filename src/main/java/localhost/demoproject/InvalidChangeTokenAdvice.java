@@ -0,0 +1,18 @@
+package localhost.demoproject;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ControllerAdvice
+public class InvalidChangeTokenAdvice {
+	
+	@ResponseBody
+	@ExceptionHandler(InvalidChangeTokenException.class)
+	@ResponseStatus(HttpStatus.GONE)
+	String invalidChangeTokenHandler(InvalidChangeTokenException ex) {
+		return ex.getMessage();
+	}
+}
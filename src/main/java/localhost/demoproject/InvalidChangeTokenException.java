@@ -0,0 +1,8 @@
+package localhost.demoproject;
+
+@SuppressWarnings("serial")
+public class InvalidChangeTokenException extends RuntimeException{
+	InvalidChangeTokenException(String token){
+		super("Change token " + token + " can no longer be continued, sync again without a token");
+	}
+}
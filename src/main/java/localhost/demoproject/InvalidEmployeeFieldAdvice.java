@@ -0,0 +1,18 @@
+package localhost.demoproject;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ControllerAdvice
+public class InvalidEmployeeFieldAdvice {
+	
+	@ResponseBody
+	@ExceptionHandler(InvalidEmployeeFieldException.class)
+	@ResponseStatus(HttpStatus.BAD_REQUEST)
+	String invalidEmployeeFieldHandler(InvalidEmployeeFieldException ex) {
+		return ex.getMessage();
+	}
+}
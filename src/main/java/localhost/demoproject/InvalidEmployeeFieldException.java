@@ -0,0 +1,8 @@
+package localhost.demoproject;
+
+@SuppressWarnings("serial")
+public class InvalidEmployeeFieldException extends RuntimeException{
+	InvalidEmployeeFieldException(String field, String reason){
+		super("Invalid employee field " + field + ": " + reason);
+	}
+}
@@ -0,0 +1,18 @@
+package localhost.demoproject;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries {@link EmployeeInvalidation} messages between the instances of this
+ * service. Delivery is best effort: messages may be lost, duplicated or reordered,
+ * which {@link EmployeeNearCache} tolerates through versions and expiry.
+ */
+interface InvalidationBus {
+	
+	/**
+	 * Given an invalidation, send it to every instance, including this one
+	 */
+	void publish(EmployeeInvalidation invalidation);
+	
+	void subscribe(Consumer<EmployeeInvalidation> subscriber);
+}
@@ -3,6 +3,7 @@ package localhost.demoproject;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -11,6 +12,7 @@ import org.springframework.context.annotation.Configuration;
 class LoadDatabase {
 
   @Bean
+  @ConditionalOnProperty(name = "employee.preload", havingValue = "true", matchIfMissing = true)
   CommandLineRunner initDatabase(EmployeeRepository repository) {
     return args -> {
         //log.info("Preloading " + repository.save(new Employee("Richard", "Lewis", "comedian", 200.00)));
@@ -0,0 +1,48 @@
+package localhost.demoproject;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link InvalidationBus} between the application contexts of one JVM, e.g. several
+ * instances started by a test. Instances on the same channel see each other's
+ * messages, which are delivered on the publishing thread.
+ */
+@Component
+@ConditionalOnExpression("${employee.near-cache.enabled:false} and '${employee.near-cache.bus:local}' == 'local'")
+class LocalInvalidationBus implements InvalidationBus {
+	private static final ConcurrentHashMap<String, List<Consumer<EmployeeInvalidation>>> CHANNELS = new ConcurrentHashMap<>();
+	
+	private final List<Consumer<EmployeeInvalidation>> channel;
+	private final List<Consumer<EmployeeInvalidation>> subscribers = new CopyOnWriteArrayList<>();
+	
+	LocalInvalidationBus(@Value("${employee.near-cache.local.channel:employees}") String channel) {
+		this.channel = CHANNELS.computeIfAbsent(channel, c -> new CopyOnWriteArrayList<>());
+	}
+	
+	@Override
+	public void publish(EmployeeInvalidation invalidation) {
+		for (Consumer<EmployeeInvalidation> subscriber : channel) {
+			subscriber.accept(invalidation);
+		}
+	}
+	
+	@Override
+	public void subscribe(Consumer<EmployeeInvalidation> subscriber) {
+		subscribers.add(subscriber);
+		channel.add(subscriber);
+	}
+	
+	@PreDestroy
+	void close() {
+		channel.removeAll(subscribers);
+	}
+}
@@ -0,0 +1,90 @@
+package localhost.demoproject;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+/**
+ * {@link EmployeeRepository} backed by {@link OffHeapEmployeeStore} for the
+ * latency-critical read tier, selected with the off-heap profile. Data lives only in
+ * this process: it does not use the JPA transactions, so the change log behind
+ * GET /employees/changes does not see its writes.
+ */
+@Repository
+@Profile("off-heap")
+@Primary
+class OffHeapEmployeeRepository extends AbstractEmployeeRepository {
+	private final OffHeapEmployeeStore store;
+	private final AtomicLong lastId = new AtomicLong();
+	
+	OffHeapEmployeeRepository(@Value("${employee.off-heap.stripes:16}") int stripes,
+			@Value("${employee.off-heap.initial-arena-bytes:65536}") int initialArenaBytes) {
+		this.store = new OffHeapEmployeeStore(stripes, initialArenaBytes);
+	}
+	
+	@Override
+	protected Long store(Employee employee) {
+		Long id = employee.getId();
+		if (id == null) {
+			id = lastId.incrementAndGet();
+		} else {
+			lastId.accumulateAndGet(id, Math::max);
+		}
+		
+		store.put(id, employee.getFirstName(), employee.getLastName(), employee.getRole());
+		return id;
+	}
+	
+	@Override
+	protected Optional<Employee> load(Long id) {
+		return Optional.ofNullable(store.get(id));
+	}
+	
+	@Override
+	public boolean existsById(Long id) {
+		return store.contains(id);
+	}
+	
+	@Override
+	protected boolean remove(Long id) {
+		return store.remove(id);
+	}
+	
+	@Override
+	protected List<Employee> loadAll() {
+		return store.all();
+	}
+	
+	@Override
+	protected long size() {
+		return store.size();
+	}
+	
+	@Override
+	public List<Employee> findByRole(String role) {
+		List<Employee> employees = new ArrayList<>();
+		for (Long id : store.idsWithRole(role)) {
+			Employee employee = store.get(id);
+			// The index is read without locking the records, so check the role again
+			if (employee != null && role.equals(employee.getRole())) {
+				employees.add(employee);
+			}
+		}
+		
+		employees.sort(Comparator.comparing(Employee::getId));
+		return employees;
+	}
+	
+	@Override
+	public Map<String, Long> countPerRole() {
+		return store.roleCounts();
+	}
+}
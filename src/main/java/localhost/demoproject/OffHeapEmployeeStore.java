@@ -0,0 +1,435 @@
+package localhost.demoproject;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Employees stored as byte-encoded records in direct (off-heap) buffers. The store is
+ * split in lock stripes by id. Each stripe has an open-addressing hash index from the
+ * primitive long id to the offset of its record, and an append-only arena of records:
+ *
+ * <pre>[int length][UTF-8 firstName][int length][UTF-8 lastName][int length][UTF-8 role]</pre>
+ *
+ * Replacing or removing a record leaves garbage in the arena, which is reclaimed by
+ * copying the live records into a new arena when the old one fills up. A concurrent
+ * set of ids per role serves as the secondary index for role.
+ */
+final class OffHeapEmployeeStore {
+	private static final long EMPTY = Long.MIN_VALUE;
+	// Largest direct buffer a stripe can address with int offsets
+	static final int MAX_ARENA_BYTES = Integer.MAX_VALUE - 8;
+
+	private final Stripe[] stripes;
+	private final int stripeShift;
+	private final ConcurrentHashMap<String, Set<Long>> roleIndex = new ConcurrentHashMap<>();
+
+	/**
+	 * @param stripes - number of lock stripes, rounded up to a power of two
+	 * @param initialArenaBytes - initial off-heap capacity of each stripe
+	 */
+	OffHeapEmployeeStore(int stripes, int initialArenaBytes) {
+		int bits = 32 - Integer.numberOfLeadingZeros(Math.max(1, stripes) - 1);
+		this.stripes = new Stripe[1 << bits];
+		this.stripeShift = 64 - bits;
+		for (int i = 0; i < this.stripes.length; i++) {
+			this.stripes[i] = new Stripe(initialArenaBytes);
+		}
+	}
+
+	Employee get(long id) {
+		Stripe stripe = stripe(id);
+		stripe.lock.readLock().lock();
+		try {
+			int slot = stripe.slot(id);
+			return slot < 0 ? null : stripe.decode(id, stripe.offsets[slot]);
+		} finally {
+			stripe.lock.readLock().unlock();
+		}
+	}
+
+	boolean contains(long id) {
+		Stripe stripe = stripe(id);
+		stripe.lock.readLock().lock();
+		try {
+			return stripe.slot(id) >= 0;
+		} finally {
+			stripe.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Given an id and the fields of an employee, insert or replace its record
+	 */
+	void put(long id, String firstName, String lastName, String role) {
+		if (id == EMPTY) {
+			throw new IllegalArgumentException("Unsupported employee id " + id);
+		}
+
+		byte[][] fields = {bytes(firstName), bytes(lastName), bytes(role)};
+		Stripe stripe = stripe(id);
+		String previousRole = null;
+
+		stripe.lock.writeLock().lock();
+		try {
+			int slot = stripe.slot(id);
+			if (slot >= 0) {
+				previousRole = stripe.decodeRole(stripe.offsets[slot]);
+				int oldLength = stripe.recordLength(stripe.offsets[slot]);
+				// The old record is still live if append has to reclaim the arena
+				stripe.offsets[slot] = stripe.append(fields);
+				stripe.garbage += oldLength;
+			} else {
+				int offset = stripe.append(fields);
+				stripe.insert(id, offset);
+			}
+
+			if (previousRole != null && !previousRole.equals(role)) {
+				unindex(id, previousRole);
+			}
+			if (role != null) {
+				index(id, role);
+			}
+		} finally {
+			stripe.lock.writeLock().unlock();
+		}
+	}
+
+	boolean remove(long id) {
+		Stripe stripe = stripe(id);
+
+		stripe.lock.writeLock().lock();
+		try {
+			int slot = stripe.slot(id);
+			if (slot < 0) {
+				return false;
+			}
+
+			String role = stripe.decodeRole(stripe.offsets[slot]);
+			stripe.garbage += stripe.recordLength(stripe.offsets[slot]);
+			stripe.delete(slot);
+			if (role != null) {
+				unindex(id, role);
+			}
+			return true;
+		} finally {
+			stripe.lock.writeLock().unlock();
+		}
+	}
+
+	long size() {
+		long size = 0;
+		for (Stripe stripe : stripes) {
+			stripe.lock.readLock().lock();
+			try {
+				size += stripe.size;
+			} finally {
+				stripe.lock.readLock().unlock();
+			}
+		}
+		return size;
+	}
+
+	List<Employee> all() {
+		List<Employee> employees = new ArrayList<>();
+		for (Stripe stripe : stripes) {
+			stripe.lock.readLock().lock();
+			try {
+				for (int slot = 0; slot < stripe.keys.length; slot++) {
+					if (stripe.keys[slot] != EMPTY) {
+						employees.add(stripe.decode(stripe.keys[slot], stripe.offsets[slot]));
+					}
+				}
+			} finally {
+				stripe.lock.readLock().unlock();
+			}
+		}
+		return employees;
+	}
+
+	/**
+	 * Returns the ids currently indexed under role. The set is live, so an id may
+	 * already have moved to another role by the time its record is read.
+	 */
+	Set<Long> idsWithRole(String role) {
+		Set<Long> ids = roleIndex.get(role);
+		return ids != null ? Collections.unmodifiableSet(ids) : Collections.emptySet();
+	}
+
+	/**
+	 * @return the number of ids indexed under each role
+	 */
+	Map<String, Long> roleCounts() {
+		Map<String, Long> counts = new HashMap<>();
+		roleIndex.forEach((role, ids) -> counts.put(role, (long) ids.size()));
+		counts.values().removeIf(count -> count == 0);
+		return counts;
+	}
+
+	/**
+	 * @return the off-heap bytes reserved by all arenas
+	 */
+	long reservedBytes() {
+		long bytes = 0;
+		for (Stripe stripe : stripes) {
+			stripe.lock.readLock().lock();
+			try {
+				bytes += stripe.arena.capacity();
+			} finally {
+				stripe.lock.readLock().unlock();
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Helper function that adds id to the set of role. The add happens inside
+	 * compute, so a concurrent unindex of another id cannot drop the set in between.
+	 */
+	private void index(long id, String role) {
+		roleIndex.compute(role, (r, ids) -> {
+			if (ids == null) {
+				ids = ConcurrentHashMap.newKeySet();
+			}
+			ids.add(id);
+			return ids;
+		});
+	}
+
+	private void unindex(long id, String role) {
+		roleIndex.computeIfPresent(role, (r, ids) -> {
+			ids.remove(id);
+			return ids.isEmpty() ? null : ids;
+		});
+	}
+
+	private Stripe stripe(long id) {
+		return stripes.length == 1 ? stripes[0] : stripes[(int) (mix(id) >>> stripeShift)];
+	}
+
+	/**
+	 * Given the current capacity of an arena and the bytes it must hold, double the
+	 * capacity until at least half of it stays free, up to MAX_ARENA_BYTES
+	 *
+	 * @return the new capacity
+	 * @throws IllegalStateException if required does not fit in MAX_ARENA_BYTES
+	 */
+	static int grownCapacity(int capacity, long required) {
+		if (required > MAX_ARENA_BYTES) {
+			throw new IllegalStateException("Off-heap stripe needs " + required + " bytes, more than the "
+					+ MAX_ARENA_BYTES + " one arena can hold; use more stripes");
+		}
+
+		long grown = capacity;
+		while (required > grown / 2 && grown < MAX_ARENA_BYTES) {
+			grown = Math.min(grown * 2, MAX_ARENA_BYTES);
+		}
+		return (int) grown;
+	}
+
+	private static long mix(long id) {
+		return id * 0x9E3779B97F4A7C15L;
+	}
+
+	private static byte[] bytes(String value) {
+		return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+	}
+
+	private static final class Stripe {
+		final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+		long[] keys;
+		int[] offsets;
+		int size;
+		ByteBuffer arena;
+		int used;
+		int garbage;
+
+		Stripe(int arenaBytes) {
+			keys = new long[16];
+			Arrays.fill(keys, EMPTY);
+			offsets = new int[16];
+			arena = ByteBuffer.allocateDirect(Math.max(64, arenaBytes));
+		}
+
+		/**
+		 * Linear probing from the home slot of id
+		 *
+		 * @return the slot holding id, or -(free slot) - 1 if id is not present
+		 */
+		int slot(long id) {
+			int mask = keys.length - 1;
+			for (int i = home(id, mask); ; i = (i + 1) & mask) {
+				long key = keys[i];
+				if (key == id) {
+					return i;
+				}
+				if (key == EMPTY) {
+					return -i - 1;
+				}
+			}
+		}
+
+		void insert(long id, int offset) {
+			if ((size + 1) * 2 > keys.length) {
+				rehash(keys.length * 2);
+			}
+
+			int slot = -slot(id) - 1;
+			keys[slot] = id;
+			offsets[slot] = offset;
+			size++;
+		}
+
+		/**
+		 * Backward-shift deletion: entries after the freed slot that probed past it
+		 * are moved back, so lookups never need tombstones
+		 */
+		void delete(int slot) {
+			int mask = keys.length - 1;
+			int free = slot;
+
+			for (int i = (free + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+				int home = home(keys[i], mask);
+				boolean movable = i > free ? (home <= free || home > i) : (home <= free && home > i);
+				if (movable) {
+					keys[free] = keys[i];
+					offsets[free] = offsets[i];
+					free = i;
+				}
+			}
+
+			keys[free] = EMPTY;
+			size--;
+		}
+
+		/**
+		 * Appends a record to the arena, compacting or growing it first when full
+		 *
+		 * @return the offset of the new record
+		 */
+		int append(byte[][] fields) {
+			int length = 0;
+			for (byte[] field : fields) {
+				length += 4 + (field != null ? field.length : 0);
+			}
+
+			if ((long) used + length > arena.capacity()) {
+				reclaim(length);
+			}
+
+			int offset = used;
+			for (byte[] field : fields) {
+				arena.putInt(used, field != null ? field.length : -1);
+				used += 4;
+				if (field != null) {
+					ByteBuffer target = arena.duplicate();
+					target.position(used);
+					target.put(field);
+					used += field.length;
+				}
+			}
+			return offset;
+		}
+
+		int recordLength(int offset) {
+			int position = offset;
+			for (int field = 0; field < 3; field++) {
+				position += 4 + Math.max(0, arena.getInt(position));
+			}
+			return position - offset;
+		}
+
+		Employee decode(long id, int offset) {
+			int[] position = {offset};
+			Employee employee = new Employee(read(position), read(position), read(position));
+			employee.setId(id);
+			return employee;
+		}
+
+		String decodeRole(int offset) {
+			int[] position = {offset};
+			skip(position);
+			skip(position);
+			return read(position);
+		}
+
+		private void skip(int[] position) {
+			position[0] += 4 + Math.max(0, arena.getInt(position[0]));
+		}
+
+		private String read(int[] position) {
+			int length = arena.getInt(position[0]);
+			position[0] += 4;
+			if (length < 0) {
+				return null;
+			}
+
+			byte[] bytes = new byte[length];
+			ByteBuffer source = arena.duplicate();
+			source.position(position[0]);
+			source.get(bytes);
+			position[0] += length;
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		private void rehash(int capacity) {
+			long[] oldKeys = keys;
+			int[] oldOffsets = offsets;
+			keys = new long[capacity];
+			Arrays.fill(keys, EMPTY);
+			offsets = new int[capacity];
+
+			int mask = capacity - 1;
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != EMPTY) {
+					int slot = home(oldKeys[i], mask);
+					while (keys[slot] != EMPTY) {
+						slot = (slot + 1) & mask;
+					}
+					keys[slot] = oldKeys[i];
+					offsets[slot] = oldOffsets[i];
+				}
+			}
+		}
+
+		/**
+		 * Copies the live records into a new arena that keeps at least half of its
+		 * capacity free after the copy, or as much as MAX_ARENA_BYTES allows,
+		 * dropping the garbage of replaced records
+		 */
+		private void reclaim(int needed) {
+			int capacity = grownCapacity(arena.capacity(), (long) used - garbage + needed);
+
+			ByteBuffer target = ByteBuffer.allocateDirect(capacity);
+			int position = 0;
+			for (int slot = 0; slot < keys.length; slot++) {
+				if (keys[slot] != EMPTY) {
+					int length = recordLength(offsets[slot]);
+					ByteBuffer record = arena.duplicate();
+					record.position(offsets[slot]).limit(offsets[slot] + length);
+					target.position(position);
+					target.put(record);
+					offsets[slot] = position;
+					position += length;
+				}
+			}
+
+			arena = target;
+			used = position;
+			garbage = 0;
+		}
+
+		private static int home(long id, int mask) {
+			long hash = mix(id);
+			return (int) (hash ^ (hash >>> 32)) & mask;
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package localhost.demoproject;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * Stores the role of an Employee as its code in the {@link RoleDictionary}. Hibernate
+ * creates it through Spring, like {@link EmployeeChangeListener}.
+ *
+ * The controllers resolve roles before their transaction starts, so at flush time
+ * the role is normally known. Only writes straight through the repository, like
+ * {@link LoadDatabase}, still add new roles from here.
+ */
+@Converter
+class RoleCodeConverter implements AttributeConverter<String, Integer> {
+	private final RoleDictionary dictionary;
+	
+	RoleCodeConverter(RoleDictionary dictionary) {
+		this.dictionary = dictionary;
+	}
+	
+	@Override
+	public Integer convertToDatabaseColumn(String role) {
+		return role != null ? dictionary.code(role) : null;
+	}
+	
+	@Override
+	public String convertToEntityAttribute(Integer code) {
+		return code != null ? dictionary.role(code) : null;
+	}
+}
@@ -0,0 +1,139 @@
+package localhost.demoproject;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sql.DataSource;
+
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps roles to the integer codes stored in the employee_role table and back. Each
+ * role is held once in memory, and every employee read from the database shares
+ * that canonical instance, so a million employees with a handful of roles hold a
+ * handful of role strings.
+ *
+ * The whole table is loaded at startup. A role another instance added since is
+ * looked up on the connection of the current transaction, if there is one, so a
+ * write never waits for a second pooled connection while holding its own.
+ *
+ * New roles are added on their own connection, outside the transaction of the
+ * employee being written: a role that is rolled back would otherwise stay cached
+ * under a code the table no longer has. Writers therefore resolve their roles with
+ * {@link #code(String)} before they start a transaction, so that flushing the
+ * employee only finds roles that exist. The dictionary is built from the
+ * DataSource only, since Hibernate needs it while the JPA repositories are still
+ * being created.
+ */
+@Component
+class RoleDictionary {
+	private final DataSource dataSource;
+	private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<Integer, String> roles = new ConcurrentHashMap<>();
+	
+	RoleDictionary(DataSource dataSource) {
+		this.dataSource = dataSource;
+	}
+	
+	/**
+	 * Reads every role, once the schema exists
+	 */
+	@EventListener(ContextRefreshedEvent.class)
+	void load() {
+		query("SELECT code, name FROM employee_role", null);
+	}
+	
+	/**
+	 * Given a role, return its code, adding the role to the dictionary if needed.
+	 * Adding takes a connection of its own, so call it outside transactions.
+	 */
+	int code(String role) {
+		Integer code = find(role);
+		return code != null ? code : add(role);
+	}
+	
+	/**
+	 * Given a role, return its code without adding it
+	 * 
+	 * @return the code of role, or null if no employee ever had it
+	 */
+	Integer find(String role) {
+		Integer code = codes.get(role);
+		if (code == null) {
+			// Another instance may have added it
+			code = query("SELECT code, name FROM employee_role WHERE name = ?", role);
+		}
+		return code;
+	}
+	
+	/**
+	 * Given a code, return the canonical instance of its role
+	 */
+	String role(int code) {
+		String role = roles.get(code);
+		if (role == null) {
+			query("SELECT code, name FROM employee_role WHERE code = ?", code);
+			role = roles.get(code);
+			if (role == null) {
+				throw new IllegalStateException("No role with code " + code);
+			}
+		}
+		return role;
+	}
+	
+	int size() {
+		return codes.size();
+	}
+	
+	private int add(String role) {
+		// MERGE is idempotent, concurrent adds of the same role get the same code
+		try (Connection connection = dataSource.getConnection()) {
+			connection.setAutoCommit(true);
+			try (PreparedStatement merge = connection.prepareStatement("MERGE INTO employee_role (name) KEY (name) VALUES (?)")) {
+				merge.setString(1, role);
+				merge.executeUpdate();
+			}
+		} catch (SQLException e) {
+			throw new DataAccessResourceFailureException("Could not add role " + role, e);
+		}
+		
+		return query("SELECT code, name FROM employee_role WHERE name = ?", role);
+	}
+	
+	/**
+	 * Helper function that reads dictionary entries and caches them, on the
+	 * connection of the current transaction if there is one
+	 * 
+	 * @param key - parameter of sql, or null if it has none
+	 * @return the code of the last entry read, or null if there was none
+	 */
+	private Integer query(String sql, Object key) {
+		Connection connection = DataSourceUtils.getConnection(dataSource);
+		try (PreparedStatement select = connection.prepareStatement(sql)) {
+			if (key != null) {
+				select.setObject(1, key);
+			}
+			try (ResultSet entry = select.executeQuery()) {
+				Integer code = null;
+				while (entry.next()) {
+					String role = entry.getString(2);
+					code = entry.getInt(1);
+					roles.putIfAbsent(code, role);
+					codes.putIfAbsent(roles.get(code), code);
+				}
+				return code;
+			}
+		} catch (SQLException e) {
+			throw new DataAccessResourceFailureException("Could not read role dictionary", e);
+		} finally {
+			DataSourceUtils.releaseConnection(connection, dataSource);
+		}
+	}
+}
@@ -0,0 +1,483 @@
+package localhost.demoproject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+
+import javax.sql.DataSource;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * {@link EmployeeRepository} that spreads employees over several databases. Each
+ * employee lives on the shard picked by a jump consistent hash of its id, so growing
+ * from N to M shards only moves the rows that have to move. Ids are globally unique:
+ * each repository reserves blocks of ids from a sequence on shard 0.
+ *
+ * Queries that are not by id are sent to every shard in parallel and the results
+ * merged. A row is only accepted from the shard its id routes to, which hides copies
+ * left behind by an interrupted move.
+ *
+ * {@link #reshard(int)} changes the number of shards while the repository stays in
+ * use. During a reshard, reads fall back to the old location, writes go to the new
+ * location and remove the old copy, and rows are moved one by one under the same
+ * per-id lock the writers take, so a move never overwrites a newer write or brings
+ * back a deleted row. Writers hold the read side of a layout lock from reading the
+ * layout until their write is done, and the layout only changes under its write
+ * side, so no write lands in a location the move has already scanned. The locks are
+ * local, so only one instance may write while resharding.
+ *
+ * Reads take no lock. A move writes the new location before it deletes the old one,
+ * so reads look at the old location before the new one: a row gone from the old
+ * location is then already in the new one. A read that saw the layout change while
+ * it ran is repeated.
+ */
+@Slf4j
+class ShardedEmployeeRepository extends AbstractEmployeeRepository implements Closeable {
+	private static final int MOVE_BATCH_SIZE = 500;
+	private static final RowMapper<Employee> EMPLOYEE = (rs, row) -> {
+		Employee employee = new Employee(rs.getString("first_name"), rs.getString("last_name"), rs.getString("role"));
+		employee.setId(rs.getLong("id"));
+		return employee;
+	};
+
+	private final List<DataSource> dataSources = new CopyOnWriteArrayList<>();
+	private final List<JdbcTemplate> shards = new CopyOnWriteArrayList<>();
+	private final IntFunction<DataSource> shardFactory;
+	private final ExecutorService fanOut;
+	private final ReentrantLock[] locks = new ReentrantLock[256];
+	private final ReentrantReadWriteLock layoutLock = new ReentrantReadWriteLock();
+	private final int idBlockSize;
+	private long nextId;
+	private long blockEnd = -1;
+	private volatile Layout current;
+	private volatile Layout previous;
+
+	/**
+	 * @param shardCount - number of shards to start with
+	 * @param shardFactory - creates the DataSource of shard n, also used when resharding adds shards
+	 * @param idBlockSize - number of ids reserved from shard 0 at a time
+	 */
+	ShardedEmployeeRepository(int shardCount, IntFunction<DataSource> shardFactory, int idBlockSize) {
+		this.shardFactory = shardFactory;
+		this.idBlockSize = idBlockSize;
+		for (int i = 0; i < locks.length; i++) {
+			locks[i] = new ReentrantLock();
+		}
+
+		AtomicInteger threads = new AtomicInteger();
+		this.fanOut = Executors.newFixedThreadPool(Math.max(4, shardCount), runnable -> {
+			Thread thread = new Thread(runnable, "employee-shard-" + threads.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		addShards(shardCount);
+		shards.get(0).execute("CREATE SEQUENCE IF NOT EXISTS employee_id_block");
+		this.current = new Layout(shardCount);
+	}
+
+	@Override
+	protected Long store(Employee employee) {
+		layoutLock.readLock().lock();
+		try {
+			return storeInLayout(employee);
+		} finally {
+			layoutLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Helper function that stores employee while the caller holds the read side of
+	 * the layout lock
+	 */
+	private Long storeInLayout(Employee employee) {
+		Long id = employee.getId();
+		ReentrantLock lock = null;
+
+		// Like the JPA repository, an unknown id is treated as a new employee
+		if (id != null) {
+			lock = lock(id);
+			if (!locate(id).isPresent()) {
+				lock.unlock();
+				lock = null;
+				id = null;
+			}
+		}
+		if (id == null) {
+			id = allocateId();
+			lock = lock(id);
+		}
+
+		try {
+			Layout layout = current;
+			int target = layout.shardFor(id);
+			shards.get(target).update("MERGE INTO employee (id, first_name, last_name, role) KEY (id) VALUES (?, ?, ?, ?)",
+					id, employee.getFirstName(), employee.getLastName(), employee.getRole());
+
+			Layout moving = previous;
+			if (moving != null && moving.shardFor(id) != target) {
+				shards.get(moving.shardFor(id)).update("DELETE FROM employee WHERE id = ?", id);
+			}
+			return id;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	protected Optional<Employee> load(Long id) {
+		return locate(id);
+	}
+
+	@Override
+	protected boolean remove(Long id) {
+		layoutLock.readLock().lock();
+		ReentrantLock lock = lock(id);
+		try {
+			boolean removed = shards.get(current.shardFor(id)).update("DELETE FROM employee WHERE id = ?", id) > 0;
+
+			Layout moving = previous;
+			if (moving != null && moving.shardFor(id) != current.shardFor(id)) {
+				removed |= shards.get(moving.shardFor(id)).update("DELETE FROM employee WHERE id = ?", id) > 0;
+			}
+			return removed;
+		} finally {
+			lock.unlock();
+			layoutLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	protected List<Employee> loadAll() {
+		return scatterGather("SELECT id, first_name, last_name, role FROM employee", EMPLOYEE);
+	}
+
+	@Override
+	protected long size() {
+		if (previous != null) {
+			return loadAll().size();
+		}
+
+		long size = 0;
+		for (Long count : fanOut(shard -> shards.get(shard).queryForObject("SELECT COUNT(*) FROM employee", Long.class))) {
+			size += count;
+		}
+		return size;
+	}
+
+	@Override
+	public List<Employee> findByRole(String role) {
+		List<Employee> employees = scatterGather("SELECT id, first_name, last_name, role FROM employee WHERE role = ?",
+				EMPLOYEE, role);
+		employees.sort((a, b) -> a.getId().compareTo(b.getId()));
+		return employees;
+	}
+
+	@Override
+	public List<Employee> findAllProjected(Set<EmployeeField> fields) {
+		return projected("", fields);
+	}
+
+	@Override
+	public List<Employee> findByRoleProjected(String role, Set<EmployeeField> fields) {
+		return projected(" WHERE role = ?", fields, role);
+	}
+
+	@Override
+	public Map<String, Long> countPerRole() {
+		// Only while no rows are moving is every row counted exactly once
+		if (previous != null) {
+			return super.countPerRole();
+		}
+		
+		Map<String, Long> headcount = new HashMap<>();
+		for (List<Map<String, Object>> rows : fanOut(shard -> shards.get(shard).queryForList(
+				"SELECT role, COUNT(*) AS headcount FROM employee GROUP BY role"))) {
+			for (Map<String, Object> row : rows) {
+				headcount.merge((String) row.get("role"), ((Number) row.get("headcount")).longValue(), Long::sum);
+			}
+		}
+		return headcount;
+	}
+
+	/**
+	 * Given a new number of shards, move every row whose shard changes. The
+	 * repository can be used as usual while this runs.
+	 *
+	 * @param shardCount - the number of shards after resharding
+	 * @return the number of rows moved
+	 */
+	synchronized long reshard(int shardCount) {
+		Layout from = current;
+		Layout to = new Layout(shardCount);
+		if (from.shards == to.shards) {
+			return 0;
+		}
+
+		addShards(shardCount - shards.size());
+		switchLayout(from, to);
+		log.info("Resharding employees from " + from.shards + " to " + to.shards + " shards");
+
+		long moved = 0;
+		for (int source = 0; source < from.shards; source++) {
+			long after = Long.MIN_VALUE;
+			List<Employee> batch;
+
+			do {
+				batch = shards.get(source).query("SELECT id, first_name, last_name, role FROM employee"
+						+ " WHERE id > ? ORDER BY id LIMIT ?", EMPLOYEE, after, MOVE_BATCH_SIZE);
+
+				for (Employee employee : batch) {
+					after = employee.getId();
+					if (from.shardFor(after) == source && to.shardFor(after) != source && move(after, source, to.shardFor(after))) {
+						moved++;
+					}
+				}
+			} while (batch.size() == MOVE_BATCH_SIZE);
+		}
+
+		switchLayout(null, to);
+		log.info("Resharded employees to " + to.shards + " shards, " + moved + " rows moved");
+		return moved;
+	}
+
+	/**
+	 * @return the number of rows stored in each shard, including rows not yet moved
+	 */
+	long[] rowsPerShard() {
+		long[] rows = new long[shards.size()];
+		for (int shard = 0; shard < rows.length; shard++) {
+			rows[shard] = shards.get(shard).queryForObject("SELECT COUNT(*) FROM employee", Long.class);
+		}
+		return rows;
+	}
+
+	@Override
+	public void close() throws IOException {
+		fanOut.shutdown();
+		for (DataSource dataSource : dataSources) {
+			if (dataSource instanceof Closeable) {
+				((Closeable) dataSource).close();
+			}
+		}
+	}
+
+	/**
+	 * Helper function that changes the layout once no writer is between reading the
+	 * layout and finishing its write
+	 */
+	private void switchLayout(Layout previous, Layout current) {
+		layoutLock.writeLock().lock();
+		try {
+			this.previous = previous;
+			this.current = current;
+		} finally {
+			layoutLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Helper function that moves one row while holding its lock. The row is read
+	 * again under the lock: if a writer got there first it already wrote the new
+	 * location and removed this copy, so there is nothing left to move.
+	 */
+	private boolean move(long id, int source, int target) {
+		ReentrantLock lock = lock(id);
+		try {
+			List<Employee> rows = shards.get(source).query("SELECT id, first_name, last_name, role FROM employee WHERE id = ?",
+					EMPLOYEE, id);
+			if (rows.isEmpty()) {
+				return false;
+			}
+
+			Employee employee = rows.get(0);
+			shards.get(target).update("MERGE INTO employee (id, first_name, last_name, role) KEY (id) VALUES (?, ?, ?, ?)",
+					id, employee.getFirstName(), employee.getLastName(), employee.getRole());
+			shards.get(source).update("DELETE FROM employee WHERE id = ?", id);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private Optional<Employee> locate(long id) {
+		while (true) {
+			// current is switched after previous, so reading it first never misses a move
+			Layout layout = current;
+			Layout moving = previous;
+
+			List<Employee> old = Collections.emptyList();
+			if (moving != null && moving.shardFor(id) != layout.shardFor(id)) {
+				old = shards.get(moving.shardFor(id)).query(
+						"SELECT id, first_name, last_name, role FROM employee WHERE id = ?", EMPLOYEE, id);
+			}
+			List<Employee> rows = shards.get(layout.shardFor(id)).query(
+					"SELECT id, first_name, last_name, role FROM employee WHERE id = ?", EMPLOYEE, id);
+
+			if (layout == current && moving == previous) {
+				return (rows.isEmpty() ? old : rows).stream().findFirst();
+			}
+		}
+	}
+
+	/**
+	 * Helper function that reads only the columns of the selected fields of the rows
+	 * matching where, on every shard
+	 */
+	private List<Employee> projected(String where, Set<EmployeeField> fields, Object... args) {
+		StringBuilder columns = new StringBuilder("id");
+		if (fields.contains(EmployeeField.FIRST_NAME)) {
+			columns.append(", first_name");
+		}
+		if (fields.contains(EmployeeField.LAST_NAME)) {
+			columns.append(", last_name");
+		}
+		if (fields.contains(EmployeeField.ROLE)) {
+			columns.append(", role");
+		}
+
+		List<Employee> employees = scatterGather("SELECT " + columns + " FROM employee" + where, (rs, row) -> {
+			Employee employee = new Employee();
+			employee.setId(rs.getLong("id"));
+			if (fields.contains(EmployeeField.FIRST_NAME)) {
+				employee.setFirstName(rs.getString("first_name"));
+			}
+			if (fields.contains(EmployeeField.LAST_NAME)) {
+				employee.setLastName(rs.getString("last_name"));
+			}
+			if (fields.contains(EmployeeField.ROLE)) {
+				employee.setRole(rs.getString("role"));
+			}
+			return employee;
+		}, args);
+
+		employees.sort((a, b) -> a.getId().compareTo(b.getId()));
+		List<Employee> projected = new ArrayList<>(employees.size());
+		for (Employee employee : employees) {
+			projected.add(project(employee, fields));
+		}
+		return projected;
+	}
+
+	/**
+	 * Helper function that runs a query on every shard in parallel and merges the
+	 * rows, keeping only the rows found where their id routes to. While resharding
+	 * every shard is queried twice, for the old locations and then for the new ones,
+	 * and a row found in its new location wins over its old copy.
+	 */
+	private List<Employee> scatterGather(String sql, RowMapper<Employee> mapper, Object... args) {
+		while (true) {
+			Layout layout = current;
+			Layout moving = previous;
+			List<List<Employee>> old = moving != null ? fanOut(shard -> shards.get(shard).query(sql, mapper, args)) : null;
+			List<List<Employee>> results = fanOut(shard -> shards.get(shard).query(sql, mapper, args));
+			if (layout != current || moving != previous) {
+				continue;
+			}
+
+			Map<Long, Employee> merged = new LinkedHashMap<>();
+			for (int shard = 0; shard < results.size(); shard++) {
+				for (Employee employee : results.get(shard)) {
+					if (layout.shardFor(employee.getId()) == shard) {
+						merged.put(employee.getId(), employee);
+					}
+				}
+			}
+			if (old != null) {
+				for (int shard = 0; shard < old.size(); shard++) {
+					for (Employee employee : old.get(shard)) {
+						if (moving.shardFor(employee.getId()) == shard) {
+							merged.putIfAbsent(employee.getId(), employee);
+						}
+					}
+				}
+			}
+
+			return new ArrayList<>(merged.values());
+		}
+	}
+
+	private <T> List<T> fanOut(IntFunction<T> query) {
+		List<CompletableFuture<T>> futures = new ArrayList<>();
+		for (int shard = 0; shard < shards.size(); shard++) {
+			int index = shard;
+			futures.add(CompletableFuture.supplyAsync(() -> query.apply(index), fanOut));
+		}
+
+		List<T> results = new ArrayList<>(futures.size());
+		for (CompletableFuture<T> future : futures) {
+			results.add(future.join());
+		}
+		return results;
+	}
+
+	private synchronized long allocateId() {
+		if (nextId > blockEnd) {
+			long block = shards.get(0).queryForObject("SELECT NEXT VALUE FOR employee_id_block", Long.class);
+			nextId = block * idBlockSize + 1;
+			blockEnd = (block + 1) * idBlockSize;
+		}
+		return nextId++;
+	}
+
+	private ReentrantLock lock(long id) {
+		ReentrantLock lock = locks[(int) ((id * 0x9E3779B97F4A7C15L) >>> 56)];
+		lock.lock();
+		return lock;
+	}
+
+	private void addShards(int count) {
+		for (int i = 0; i < count; i++) {
+			DataSource dataSource = shardFactory.apply(shards.size());
+			JdbcTemplate shard = new JdbcTemplate(dataSource);
+			shard.execute("CREATE TABLE IF NOT EXISTS employee (id BIGINT PRIMARY KEY,"
+					+ " first_name VARCHAR(255) NOT NULL, last_name VARCHAR(255) NOT NULL, role VARCHAR(255) NOT NULL)");
+			shard.execute("CREATE INDEX IF NOT EXISTS employee_role ON employee (role)");
+			dataSources.add(dataSource);
+			shards.add(shard);
+		}
+	}
+
+	/**
+	 * Maps ids to a number of shards with Lamping and Veach's jump consistent hash
+	 */
+	private static final class Layout {
+		final int shards;
+
+		Layout(int shards) {
+			this.shards = shards;
+		}
+
+		int shardFor(long id) {
+			long key = id;
+			long bucket = -1;
+			long jump = 0;
+
+			while (jump < shards) {
+				bucket = jump;
+				key = key * 2862933555777941757L + 1;
+				jump = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+			}
+			return (int) bucket;
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package localhost.demoproject;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Sets up {@link ShardedEmployeeRepository}, selected with the sharded profile. Shard
+ * n is reached at employee.sharding.url with %d replaced by n. Setting
+ * employee.sharding.reshard-to starts moving rows to that many shards once the
+ * application is up.
+ */
+@Configuration
+@Profile("sharded")
+@Slf4j
+class ShardingConfiguration {
+
+	@Bean
+	@Primary
+	ShardedEmployeeRepository shardedEmployeeRepository(@Value("${employee.sharding.shards:4}") int shards,
+			@Value("${employee.sharding.url:jdbc:h2:mem:employee-shard-%d;DB_CLOSE_DELAY=-1}") String url,
+			@Value("${employee.sharding.id-block-size:100}") int idBlockSize) {
+		return new ShardedEmployeeRepository(shards,
+				shard -> DataSourceBuilder.create().url(String.format(url, shard)).username("sa").build(),
+				idBlockSize);
+	}
+
+	@Bean
+	ApplicationRunner reshardOnStartup(ShardedEmployeeRepository repository,
+			@Value("${employee.sharding.reshard-to:0}") int reshardTo) {
+		return args -> {
+			if (reshardTo > 0) {
+				Thread resharder = new Thread(() -> {
+					try {
+						repository.reshard(reshardTo);
+					} catch (RuntimeException e) {
+						log.error("Resharding employees to " + reshardTo + " shards failed", e);
+					}
+				}, "employee-resharder");
+				resharder.setDaemon(true);
+				resharder.start();
+			}
+		};
+	}
+}
@@ -0,0 +1,113 @@
+package localhost.demoproject;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import javax.annotation.PreDestroy;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link InvalidationBus} sending each message as a 16 byte UDP datagram (id and
+ * version) to every peer in employee.near-cache.udp.peers, given as host:port and
+ * normally including this instance. A lost datagram leaves a stale entry until it
+ * expires.
+ *
+ * The socket listens on employee.near-cache.udp.bind-address, loopback unless
+ * configured, so instances on other hosts need it set to an address they can reach.
+ * Datagrams are not authenticated: anyone who can reach the port can evict entries,
+ * so only bind to a network of trusted instances.
+ */
+@Component
+@ConditionalOnExpression("${employee.near-cache.enabled:false} and '${employee.near-cache.bus:local}' == 'udp'")
+@Slf4j
+class UdpInvalidationBus implements InvalidationBus {
+	private static final int MESSAGE_BYTES = 16;
+	
+	private final DatagramSocket socket;
+	private final List<InetSocketAddress> peers = new ArrayList<>();
+	private final List<Consumer<EmployeeInvalidation>> subscribers = new CopyOnWriteArrayList<>();
+	private final Thread receiver;
+	
+	UdpInvalidationBus(@Value("${employee.near-cache.udp.bind-address:}") String bindAddress,
+			@Value("${employee.near-cache.udp.port:0}") int port,
+			@Value("${employee.near-cache.udp.peers:}") String[] peers) throws SocketException, UnknownHostException {
+		InetAddress address = bindAddress.trim().isEmpty() ? InetAddress.getLoopbackAddress() : InetAddress.getByName(bindAddress.trim());
+		this.socket = new DatagramSocket(new InetSocketAddress(address, port));
+		for (String peer : peers) {
+			if (peer.trim().isEmpty()) {
+				continue;
+			}
+			int colon = peer.lastIndexOf(':');
+			this.peers.add(new InetSocketAddress(peer.substring(0, colon).trim(), Integer.parseInt(peer.substring(colon + 1).trim())));
+		}
+		
+		this.receiver = new Thread(this::receive, "employee-invalidation-receiver");
+		this.receiver.setDaemon(true);
+		this.receiver.start();
+	}
+	
+	@Override
+	public void publish(EmployeeInvalidation invalidation) {
+		byte[] message = ByteBuffer.allocate(MESSAGE_BYTES)
+				.putLong(invalidation.getId())
+				.putLong(invalidation.getVersion())
+				.array();
+		
+		for (InetSocketAddress peer : peers) {
+			try {
+				socket.send(new DatagramPacket(message, message.length, peer));
+			} catch (IOException e) {
+				log.warn("Could not send employee invalidation to " + peer, e);
+			}
+		}
+	}
+	
+	@Override
+	public void subscribe(Consumer<EmployeeInvalidation> subscriber) {
+		subscribers.add(subscriber);
+	}
+	
+	@PreDestroy
+	void close() {
+		socket.close();
+	}
+	
+	private void receive() {
+		byte[] buffer = new byte[MESSAGE_BYTES];
+		DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+		
+		while (!socket.isClosed()) {
+			try {
+				socket.receive(packet);
+			} catch (IOException e) {
+				if (!socket.isClosed()) {
+					log.warn("Could not receive employee invalidation", e);
+				}
+				continue;
+			}
+			
+			if (packet.getLength() == MESSAGE_BYTES) {
+				ByteBuffer message = ByteBuffer.wrap(buffer);
+				EmployeeInvalidation invalidation = new EmployeeInvalidation(message.getLong(), message.getLong());
+				for (Consumer<EmployeeInvalidation> subscriber : subscribers) {
+					subscriber.accept(invalidation);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package localhost.demoproject;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+class WebConfiguration implements WebMvcConfigurer {
+	private final EmployeeAccessInterceptor accessInterceptor;
+
+	WebConfiguration(EmployeeAccessInterceptor accessInterceptor) {
+		this.accessInterceptor = accessInterceptor;
+	}
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(accessInterceptor).addPathPatterns("/employees", "/employees/*");
+	}
+}
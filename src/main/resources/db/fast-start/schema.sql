@@ -0,0 +1,9 @@
+-- Schema of the fast-start profile, created up front instead of by Hibernate at boot.
+-- Keep in step with the entities: FastStartEmployeeApiTest validates it against them.
+create sequence if not exists hibernate_sequence start with 1 increment by 1;
+create sequence if not exists employee_change_seq start with 1 increment by 1;
+create table if not exists employee (id bigint not null, first_name varchar(255) not null, last_name varchar(255) not null, role_code integer not null, version bigint not null, primary key (id));
+create table if not exists employee_change (change_seq bigint not null, changed_at timestamp not null, employee_id bigint not null, first_name varchar(255), last_name varchar(255), role varchar(255), change_type varchar(255) not null, primary key (change_seq));
+create table if not exists employee_change_epoch (id integer not null, epoch varchar(255) not null, purged_through bigint not null, primary key (id));
+create table if not exists employee_role (code integer generated by default as identity, name varchar(255) not null, primary key (code), constraint uk_employee_role_name unique (name));
+create index if not exists idx_employee_change_employee_id on employee_change (employee_id);
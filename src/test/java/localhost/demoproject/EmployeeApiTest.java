@@ -0,0 +1,258 @@
+package localhost.demoproject;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Runs the employee endpoints end to end against the real repository. Subclasses
+ * run the same requests against the other storage engines.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class EmployeeApiTest {
+	@Autowired
+	protected MockMvc mockMvc;
+	
+	@Autowired
+	protected EmployeeRepository repository;
+	
+	@Autowired
+	private EmployeeStats stats;
+	
+	/**
+	 * Helper function that creates an employee through POST /employees
+	 * 
+	 * @return the id of the created employee
+	 */
+	protected long create(String firstName, String lastName, String role) throws Exception {
+		String json = mockMvc.perform(post("/employees")
+				.content("{\"firstName\":\"" + firstName + "\",\"lastName\":\"" + lastName + "\",\"role\":\"" + role + "\"}")
+				.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isCreated())
+				.andReturn().getResponse().getContentAsString();
+		
+		return new ObjectMapper().readTree(json).get("id").asLong();
+	}
+	
+	@Test
+	/**
+	 * Tests that an employee created by POST is served by GET with its self link
+	 */
+	void post_ThenGet_ShouldReturnCreatedEmployee() throws Exception {
+		long id = create("Bilbo", "Baggins", "burglar");
+		
+		mockMvc.perform(get("/employees/" + id))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.name").value("Bilbo Baggins"))
+				.andExpect(jsonPath("$.role").value("burglar"))
+				.andExpect(jsonPath("$._links.self.href").value("http://localhost/employees/" + id));
+	}
+	
+	@Test
+	/**
+	 * Tests that PUT replaces the fields of an existing employee and keeps its id
+	 */
+	void put_ExistingEmployee_ShouldReplaceEmployee() throws Exception {
+		long id = create("Robert", "Baratheon", "king");
+		
+		mockMvc.perform(put("/employees/" + id)
+				.content("{\"firstName\":\"Jon\",\"lastName\":\"Snow\",\"role\":\"night's watch\"}")
+				.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isCreated())
+				.andExpect(jsonPath("$.id").value(id));
+		
+		assertEquals("Jon Snow", repository.findById(id).get().getName());
+	}
+	
+	@Test
+	/**
+	 * Tests that a merge patch of the role leaves the name untouched
+	 */
+	void patch_Role_ShouldOnlyChangeRole() throws Exception {
+		long id = create("Jon", "Snow", "night's watch");
+		
+		mockMvc.perform(patch("/employees/" + id)
+				.content("{\"role\":\"king in the north\"}")
+				.contentType(EmployeeController.MERGE_PATCH_JSON_VALUE))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.name").value("Jon Snow"))
+				.andExpect(jsonPath("$.role").value("king in the north"));
+	}
+	
+	@Test
+	/**
+	 * Tests that a deleted employee is gone and that deleting it again still succeeds
+	 */
+	void delete_ExistingEmployee_ShouldRemoveEmployee() throws Exception {
+		long id = create("Ned", "Stark", "hand of the king");
+		
+		mockMvc.perform(delete("/employees/" + id)).andExpect(status().isNoContent());
+		mockMvc.perform(get("/employees/" + id)).andExpect(status().isNotFound());
+		mockMvc.perform(delete("/employees/" + id)).andExpect(status().isNoContent());
+	}
+	
+	@Test
+	/**
+	 * Tests that filtering by role excludes the employees of other roles
+	 */
+	void get_ByRole_ShouldOnlyReturnEmployeesWithRole() throws Exception {
+		long id = create("Arya", "Stark", "faceless");
+		long otherId = create("Sansa", "Stark", "queen");
+		
+		mockMvc.perform(get("/employees").param("role", "faceless"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$._embedded.employeeModelList[*].id").value(hasItem((int) id)))
+				.andExpect(jsonPath("$._embedded.employeeModelList[*].id").value(not(hasItem((int) otherId))));
+	}
+	
+	@Test
+	/**
+	 * Tests that ?role= with ?fields= only returns the selected fields of the
+	 * employees with the role
+	 */
+	void get_ByRoleWithFields_ShouldOnlyReturnSelectedFields() throws Exception {
+		create("Brienne", "Tarth", "knight of the seven kingdoms");
+		create("Podrick", "Payne", "squire");
+		
+		mockMvc.perform(get("/employees").param("role", "knight of the seven kingdoms").param("fields", "lastName"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$._embedded.employeeModelList[*].lastName").value(hasItem("Tarth")))
+				.andExpect(jsonPath("$._embedded.employeeModelList[*].lastName").value(not(hasItem("Payne"))))
+				.andExpect(jsonPath("$._embedded.employeeModelList[0].role").doesNotExist())
+				.andExpect(jsonPath("$._embedded.employeeModelList[0]._links").doesNotExist());
+	}
+	
+	@Test
+	/**
+	 * Tests that the stats follow creates, replaces and deletes and agree with a recount
+	 */
+	void get_Stats_ShouldCountWritesAndAgreeWithRepository() throws Exception {
+		long id = create("Samwell", "Tarly", "maester");
+		create("Gilly", "Tarly", "maester");
+		long otherId = create("Aemon", "Targaryen", "maester");
+		mockMvc.perform(put("/employees/" + id)
+				.content("{\"firstName\":\"Samwell\",\"lastName\":\"Tarly\",\"role\":\"grand maester\"}")
+				.contentType(MediaType.APPLICATION_JSON));
+		mockMvc.perform(delete("/employees/" + otherId));
+		
+		mockMvc.perform(get("/employees/stats"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.headcountByRole.maester").value(1))
+				.andExpect(jsonPath("$.headcountByRole['grand maester']").value(1))
+				.andExpect(jsonPath("$._links.self.href").value("http://localhost/employees/stats"));
+		assertEquals(repository.countPerRole(), stats.headcount());
+	}
+	
+	@Test
+	/**
+	 * Tests that a repeatedly read employee and its query shape show up in the hotkeys
+	 * endpoint
+	 */
+	void get_RepeatedReads_ShouldShowUpInHotKeys() throws Exception {
+		long id = create("Hodor", "Hodor", "hodor");
+		for (int i = 0; i < 50; i++) {
+			mockMvc.perform(get("/employees/" + id));
+		}
+		
+		mockMvc.perform(get("/actuator/hotkeys"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.ids[*].key").value(hasItem(String.valueOf(id))))
+				.andExpect(jsonPath("$.queries[*].key").value(hasItem("GET /employees/{id}")));
+	}
+	
+	@Test
+	/**
+	 * Tests that ?fields= leaves out the fields and links that were not selected
+	 */
+	void get_SelectedFields_ShouldOnlyReturnSelectedFields() throws Exception {
+		long id = create("Tyrion", "Lannister", "hand of the queen");
+		
+		mockMvc.perform(get("/employees/" + id).param("fields", "role"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.role").value("hand of the queen"))
+				.andExpect(jsonPath("$.firstName").doesNotExist())
+				.andExpect(jsonPath("$._links").doesNotExist());
+	}
+	
+	@Test
+	/**
+	 * Tests that a bulk request creates, replaces and deletes in order, answering
+	 * each operation with the status of its single employee endpoint
+	 */
+	void post_Bulk_ShouldApplyOperationsInOrder() throws Exception {
+		long replaced = create("Ned", "Stark", "hand of the king");
+		long deleted = create("Robert", "Baratheon", "king");
+		
+		mockMvc.perform(post("/employees/_bulk")
+				.content("{\"operations\":["
+						+ "{\"op\":\"create\",\"employee\":{\"firstName\":\"Joffrey\",\"lastName\":\"Baratheon\",\"role\":\"king\"}},"
+						+ "{\"op\":\"replace\",\"id\":" + replaced + ",\"employee\":{\"firstName\":\"Ned\",\"lastName\":\"Stark\",\"role\":\"traitor\"}},"
+						+ "{\"op\":\"delete\",\"id\":" + deleted + "}]}")
+				.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.results[*].status").value(contains(201, 201, 204)))
+				.andExpect(jsonPath("$.results[0].id").isNumber())
+				.andExpect(jsonPath("$.failed").value(0));
+		
+		assertEquals("traitor", repository.findById(replaced).get().getRole());
+		assertFalse(repository.existsById(deleted));
+		assertEquals(repository.countPerRole(), stats.headcount());
+	}
+	
+	@Test
+	/**
+	 * Tests that an operation missing its id rejects the whole bulk request
+	 */
+	void post_BulkWithMalformedOperation_ShouldRejectWholeRequest() throws Exception {
+		long count = repository.count();
+		
+		mockMvc.perform(post("/employees/_bulk")
+				.content("{\"operations\":["
+						+ "{\"op\":\"create\",\"employee\":{\"firstName\":\"Theon\",\"lastName\":\"Greyjoy\",\"role\":\"prince\"}},"
+						+ "{\"op\":\"delete\"}]}")
+				.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isBadRequest());
+		
+		assertEquals(count, repository.count());
+	}
+	
+	@Test
+	/**
+	 * Tests that a bulk request over employee.bulk.max-operations is rejected as a
+	 * whole
+	 */
+	void post_BulkOverMaxOperations_ShouldRejectWholeRequest() throws Exception {
+		long count = repository.count();
+		String create = "{\"op\":\"create\",\"employee\":{\"firstName\":\"Hodor\",\"lastName\":\"Hodor\",\"role\":\"hodor\"}}";
+		
+		mockMvc.perform(post("/employees/_bulk")
+				.content("{\"operations\":[" + String.join(",", Collections.nCopies(1001, create)) + "]}")
+				.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isBadRequest())
+				.andExpect(content().string(containsString("at most 1000 operations")));
+		
+		assertEquals(count, repository.count());
+	}
+}
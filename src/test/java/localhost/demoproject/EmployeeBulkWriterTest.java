@@ -0,0 +1,130 @@
+package localhost.demoproject;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@SpringBootTest(properties = "employee.bulk.chunk-size=2")
+class EmployeeBulkWriterTest {
+	@Autowired
+	private EmployeeBulkWriter bulkWriter;
+
+	@Autowired
+	private EmployeeRepository repository;
+
+	@Autowired
+	private EmployeeStats stats;
+
+	@Autowired
+	private RoleDictionary roles;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	/**
+	 * Helper function that builds an operation
+	 */
+	private EmployeeBulkOperation operation(EmployeeBulkOperation.Type type, Long id, Employee employee) {
+		EmployeeBulkOperation operation = new EmployeeBulkOperation();
+		operation.setOp(type);
+		operation.setId(id);
+		operation.setEmployee(employee);
+		return operation;
+	}
+
+	@Test
+	/**
+	 * Tests that an operation violating a column constraint fails on its own, while
+	 * the other operation of its chunk and the chunk after it are still applied
+	 */
+	void write_InvalidOperationInChunk_ShouldOnlyFailThatOperation() {
+		Employee existing = repository.save(new Employee("Catelyn", "Stark", "lady"));
+
+		List<EmployeeBulkResult> results = bulkWriter.write(Arrays.asList(
+				operation(EmployeeBulkOperation.Type.CREATE, null, new Employee("Bran", "Stark", "three-eyed raven")),
+				operation(EmployeeBulkOperation.Type.CREATE, null, new Employee("Invalid", "Stark", null)),
+				operation(EmployeeBulkOperation.Type.DELETE, existing.getId(), null),
+				operation(EmployeeBulkOperation.Type.CREATE, null, new Employee("Rickon", "Stark", "prince"))));
+
+		List<Integer> statuses = results.stream().map(EmployeeBulkResult::getStatus).collect(Collectors.toList());
+		assertAll(
+				() -> assertEquals(Arrays.asList(201, 500, 204, 201), statuses),
+				() -> assertNotNull(results.get(1).getError()),
+				() -> assertEquals("Bran", repository.findById(results.get(0).getId()).get().getFirstName()),
+				() -> assertEquals("Rickon", repository.findById(results.get(3).getId()).get().getFirstName()),
+				() -> assertFalse(repository.existsById(existing.getId())),
+				() -> assertTrue(repository.findAll().stream().noneMatch(e -> "Invalid".equals(e.getFirstName())))
+		);
+	}
+
+	@Test
+	/**
+	 * Tests that a delete sees the replace before it in the same chunk, and that the
+	 * stats follow both
+	 */
+	void write_ReplaceThenDeleteInOneChunk_ShouldApplyInOrder() {
+		Employee existing = repository.save(new Employee("Lysa", "Arryn", "lady"));
+		stats.reconcile();
+
+		List<EmployeeBulkResult> results = bulkWriter.write(Arrays.asList(
+				operation(EmployeeBulkOperation.Type.REPLACE, existing.getId(), new Employee("Lysa", "Arryn", "regent")),
+				operation(EmployeeBulkOperation.Type.DELETE, existing.getId(), null)));
+
+		assertAll(
+				() -> assertEquals(201, results.get(0).getStatus()),
+				() -> assertEquals(204, results.get(1).getStatus()),
+				() -> assertFalse(repository.existsById(existing.getId())),
+				() -> assertEquals(repository.countPerRole(), stats.headcount())
+		);
+	}
+
+	@Test
+	/**
+	 * Tests that a replace losing a race with a concurrent write fails with 409, while
+	 * the other operations of its chunk are still applied
+	 */
+	void write_ConcurrentVersionBump_ShouldOnlyConflictThatReplace() {
+		Employee contested = repository.save(new Employee("Jaime", "Lannister", "kingsguard"));
+		Employee other = repository.save(new Employee("Cersei", "Lannister", "queen"));
+		EmployeeRepository racing = mock(EmployeeRepository.class, delegatesTo(repository));
+		doAnswer(invocation -> {
+			List<Employee> found = repository.findAllById(invocation.getArgument(0));
+			// Another request writes the contested employee after this one read it
+			CompletableFuture.runAsync(() -> jdbcTemplate.update(
+					"UPDATE employee SET version = version + 1 WHERE id = ?", contested.getId())).join();
+			return found;
+		}).when(racing).findAllById(any());
+		EmployeeBulkWriter writer = new EmployeeBulkWriter(racing, transactionManager, stats, roles, Optional.empty(), 3);
+
+		List<EmployeeBulkResult> results = writer.write(Arrays.asList(
+				operation(EmployeeBulkOperation.Type.REPLACE, contested.getId(), new Employee("Jaime", "Lannister", "lord commander")),
+				operation(EmployeeBulkOperation.Type.REPLACE, other.getId(), new Employee("Cersei", "Lannister", "queen regent")),
+				operation(EmployeeBulkOperation.Type.CREATE, null, new Employee("Tommen", "Baratheon", "king"))));
+
+		List<Integer> statuses = results.stream().map(EmployeeBulkResult::getStatus).collect(Collectors.toList());
+		assertAll(
+				() -> assertEquals(Arrays.asList(409, 201, 201), statuses),
+				() -> assertNotNull(results.get(0).getError()),
+				() -> assertEquals("kingsguard", repository.findById(contested.getId()).get().getRole()),
+				() -> assertEquals("queen regent", repository.findById(other.getId()).get().getRole()),
+				() -> assertEquals("Tommen", repository.findById(results.get(2).getId()).get().getFirstName())
+		);
+	}
+}
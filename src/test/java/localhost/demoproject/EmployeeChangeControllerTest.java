@@ -0,0 +1,176 @@
+package localhost.demoproject;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest(properties = {"employee.changes.tombstone-retention=0s", "employee.changes.compaction-interval-ms=3600000"})
+class EmployeeChangeControllerTest {
+	@Autowired
+	private EmployeeChangeController changeController;
+	
+	@Autowired
+	private EmployeeChangeLog changeLog;
+	
+	@Autowired
+	private EmployeeRepository repository;
+	
+	@Autowired
+	private DataSource dataSource;
+	
+	/**
+	 * Helper function that reads all changes after since, following the pages
+	 * 
+	 * @param since - token to start from, or null
+	 * @return the last page, holding the token to continue from
+	 */
+	private EmployeeChangesModel changesAfter(String since) {
+		ResponseEntity<EmployeeChangesModel> result = (ResponseEntity<EmployeeChangesModel>) changeController.changes(since, 100);
+		assertEquals(200, result.getStatusCodeValue());
+		return result.getBody();
+	}
+	
+	@Test
+	/**
+	 * Tests that a token only returns the changes made after it was handed out,
+	 * including a tombstone for a deleted employee
+	 */
+	void changes_AfterToken_ShouldOnlyReturnNewChanges() {
+		String token = changesAfter(null).getToken();
+		
+		Employee employee = repository.save(new Employee("Bilbo", "Baggins", "burglar"));
+		employee.setRole("ring bearer");
+		repository.save(employee);
+		repository.deleteById(employee.getId());
+		
+		EmployeeChangesModel result = changesAfter(token);
+		List<EmployeeChange> changes = result.getChanges();
+		
+		assertAll(
+				() -> assertEquals(3, changes.size()),
+				() -> assertEquals(EmployeeChange.Type.CREATED, changes.get(0).getType()),
+				() -> assertEquals(EmployeeChange.Type.UPDATED, changes.get(1).getType()),
+				() -> assertEquals("ring bearer", changes.get(1).getRole()),
+				() -> assertEquals(EmployeeChange.Type.DELETED, changes.get(2).getType()),
+				() -> assertEquals(employee.getId(), changes.get(2).getEmployeeId()),
+				() -> assertNull(changes.get(2).getRole()),
+				() -> assertFalse(result.isMore()),
+				() -> assertTrue(result.hasLink("next")),
+				() -> assertTrue(changesAfter(result.getToken()).getChanges().isEmpty())
+		);
+	}
+	
+	@Test
+	/**
+	 * Tests that compaction keeps only the latest change per employee, and that a
+	 * token from before a dropped tombstone is rejected
+	 */
+	void compact_SupersededChangesAndTombstones_ShouldBeRemoved() {
+		Employee kept = repository.save(new Employee("Jon", "Snow", "night's watch"));
+		String token = changesAfter(null).getToken();
+		kept.setRole("king in the north");
+		repository.save(kept);
+		Employee deleted = repository.save(new Employee("Robert", "Baratheon", "king"));
+		repository.deleteById(deleted.getId());
+		
+		changeLog.compact();
+		
+		List<EmployeeChange> changes = changesAfter(null).getChanges();
+		assertAll(
+				() -> assertEquals(1, changes.stream().filter(c -> c.getEmployeeId().equals(kept.getId())).count()),
+				() -> assertEquals(0, changes.stream().filter(c -> c.getEmployeeId().equals(deleted.getId())).count()),
+				() -> assertThrows(InvalidChangeTokenException.class, () -> changesAfter(token))
+		);
+	}
+	
+	@Test
+	/**
+	 * Tests that a token from another run of the change log is rejected
+	 */
+	void changes_MalformedToken_ShouldThrowError() {
+		assertThrows(InvalidChangeTokenException.class, () -> changesAfter("other.5"));
+		assertThrows(InvalidChangeTokenException.class, () -> changesAfter("garbage"));
+	}
+	
+	@Test
+	/**
+	 * Tests that another instance on the same database continues the tokens of this
+	 * one, sees its changes, and that its compaction rejects the tokens here too
+	 */
+	void changes_TokenFromOtherInstance_ShouldBeShared() {
+		EmployeeChangeLog other = new EmployeeChangeLog(dataSource, Duration.ZERO);
+		other.initialize();
+		String token = changesAfter(null).getToken();
+		
+		Employee employee = repository.save(new Employee("Arya", "Stark", "faceless"));
+		repository.deleteById(employee.getId());
+		long sequence = other.fromToken(token);
+		long horizon = other.horizon();
+		other.compact();
+		
+		assertAll(
+				() -> assertTrue(horizon >= sequence + 2),
+				() -> assertThrows(InvalidChangeTokenException.class, () -> changesAfter(token))
+		);
+	}
+	
+	@Test
+	/**
+	 * Tests that a change committed here while another instance still has an
+	 * earlier one open is held back, so a token taken in between still sees both
+	 */
+	void changes_OpenChangeOnOtherInstance_ShouldNotBeSkipped() throws Exception {
+		EmployeeChangeLog other = new EmployeeChangeLog(dataSource, Duration.ZERO);
+		other.initialize();
+		Employee open = new Employee("Sansa", "Stark", "lady of winterfell");
+		open.setId(Long.MAX_VALUE);
+		CountDownLatch appended = new CountDownLatch(1);
+		CountDownLatch commit = new CountDownLatch(1);
+		
+		CompletableFuture<Void> otherTransaction = CompletableFuture.runAsync(() ->
+				new TransactionTemplate(new DataSourceTransactionManager(dataSource)).execute(status -> {
+					other.append(EmployeeChange.Type.CREATED, open);
+					other.flush();
+					appended.countDown();
+					try {
+						commit.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					return null;
+				}));
+		assertTrue(appended.await(10, TimeUnit.SECONDS));
+		CompletableFuture<Employee> save = CompletableFuture.supplyAsync(() ->
+				repository.save(new Employee("Bran", "Stark", "three-eyed raven")));
+		try {
+			save.get(500, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			// Waits for the open change, as it should
+		}
+		String token = changesAfter(null).getToken();
+		commit.countDown();
+		otherTransaction.get(10, TimeUnit.SECONDS);
+		Employee saved = save.get(10, TimeUnit.SECONDS);
+		
+		List<EmployeeChange> changes = changesAfter(token).getChanges();
+		
+		assertAll(
+				() -> assertTrue(changes.stream().anyMatch(change -> open.getId().equals(change.getEmployeeId()))),
+				() -> assertTrue(changes.stream().anyMatch(change -> saved.getId().equals(change.getEmployeeId())))
+		);
+	}
+}
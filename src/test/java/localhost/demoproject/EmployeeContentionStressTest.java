@@ -0,0 +1,256 @@
+package localhost.demoproject;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.sql.DataSource;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sends concurrent PUTs and DELETEs for a handful of employees through the controller
+ * to the embedded H2 database, with more threads at every level. PUT reads the
+ * employee and then saves it, DELETE reads it and then deletes it, so the threads
+ * race between the read and the write. Conflicts answered with 409 are retried.
+ *
+ * Every level reports its throughput, latency, retries, deadlocks and the time
+ * sessions spent blocked on a row lock, and checks that
+ * <ul>
+ * <li>no acknowledged update was lost: the version of every employee equals the
+ * number of PUTs acknowledged for it, since each one must have bumped it,</li>
+ * <li>no delete was undone: no employee whose DELETE was acknowledged exists,</li>
+ * <li>no request failed with a server error.</li>
+ * </ul>
+ * Run with {@code mvn test -Pstress -Dstress.threads=1,2,4,8,16 -Dstress.duration-seconds=5}.
+ */
+@Tag("stress")
+@Slf4j
+// Hibernate logs every conflict as an error before it is answered with 409
+@SpringBootTest(properties = "logging.level.org.hibernate.engine.jdbc=OFF")
+@AutoConfigureMockMvc
+class EmployeeContentionStressTest {
+	private static final String THREADS = System.getProperty("stress.threads", "1,2,4,8,16");
+	private static final long DURATION_MILLIS = Long.getLong("stress.duration-seconds", 5) * 1000;
+	private static final int HOT_EMPLOYEES = Integer.getInteger("stress.hot-employees", 4);
+	private static final int MAX_ATTEMPTS = 50;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private EmployeeRepository repository;
+
+	@Autowired
+	private DataSource dataSource;
+
+	private final ObjectMapper mapper = new ObjectMapper();
+	private final AtomicLong names = new AtomicLong();
+
+	@Test
+	/**
+	 * Tests that at every thread count, concurrent writes to a few employees lose no
+	 * update and no delete is undone by a later write
+	 */
+	void writes_ContendedEmployees_ShouldLoseNoUpdatesAndUndoNoDeletes() throws Exception {
+		for (String threads : THREADS.split(",")) {
+			Level level = new Level(Integer.parseInt(threads.trim()));
+			level.run();
+			level.report();
+			level.verify();
+		}
+	}
+
+	private class Level {
+		final int threads;
+		final AtomicLongArray slots = new AtomicLongArray(HOT_EMPLOYEES);
+		final Map<Long, AtomicInteger> acknowledgedUpdates = new ConcurrentHashMap<>();
+		final Set<Long> deleted = ConcurrentHashMap.newKeySet();
+		final Histogram latency = new ConcurrentHistogram(3);
+		final AtomicLong writes = new AtomicLong();
+		final AtomicLong retries = new AtomicLong();
+		final AtomicLong deadlocks = new AtomicLong();
+		final AtomicLong lockTimeouts = new AtomicLong();
+		final AtomicLong serverErrors = new AtomicLong();
+		final AtomicLong givenUp = new AtomicLong();
+		long lockWaitMillis;
+		long elapsedMillis;
+
+		Level(int threads) {
+			this.threads = threads;
+		}
+
+		void run() throws Exception {
+			for (int slot = 0; slot < HOT_EMPLOYEES; slot++) {
+				slots.set(slot, create());
+			}
+
+			ExecutorService workers = Executors.newFixedThreadPool(threads);
+			List<Future<?>> results = new ArrayList<>();
+			long start = System.currentTimeMillis();
+			long deadline = start + DURATION_MILLIS;
+			for (int i = 0; i < threads; i++) {
+				results.add(workers.submit(() -> {
+					while (System.currentTimeMillis() < deadline) {
+						write();
+					}
+					return null;
+				}));
+			}
+
+			lockWaitMillis = sampleLockWaits(deadline);
+			for (Future<?> result : results) {
+				result.get();
+			}
+			elapsedMillis = System.currentTimeMillis() - start;
+			workers.shutdown();
+		}
+
+		/**
+		 * Helper function that sends one write for a random hot employee: mostly a PUT
+		 * renaming it, sometimes a DELETE, after which a new employee takes its slot
+		 */
+		void write() throws Exception {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			int slot = random.nextInt(HOT_EMPLOYEES);
+			long id = slots.get(slot);
+
+			if (random.nextInt(20) == 0) {
+				if (send(delete("/employees/" + id)).getResponse().getStatus() == 204) {
+					deleted.add(id);
+					slots.compareAndSet(slot, id, create());
+				}
+				return;
+			}
+
+			MvcResult result = send(put("/employees/" + id)
+					.content("{\"firstName\":\"Stress" + names.incrementAndGet() + "\",\"lastName\":\"Test\",\"role\":\"contender\"}")
+					.contentType(MediaType.APPLICATION_JSON));
+			// A PUT of an employee deleted meanwhile creates a new employee with a new id
+			if (result.getResponse().getStatus() == 201 && id(result) == id) {
+				acknowledgedUpdates.computeIfAbsent(id, i -> new AtomicInteger()).incrementAndGet();
+			}
+		}
+
+		/**
+		 * Helper function that sends request until it is not answered with 409
+		 *
+		 * @return the last result
+		 */
+		MvcResult send(RequestBuilder request) throws Exception {
+			for (int attempt = 1; ; attempt++) {
+				long start = System.nanoTime();
+				MvcResult result = mockMvc.perform(request).andReturn();
+				latency.recordValue((System.nanoTime() - start) / 1000);
+
+				Exception exception = result.getResolvedException();
+				if (exception instanceof DeadlockLoserDataAccessException) {
+					deadlocks.incrementAndGet();
+				} else if (exception instanceof PessimisticLockingFailureException) {
+					lockTimeouts.incrementAndGet();
+				}
+
+				int status = result.getResponse().getStatus();
+				if (status >= 500) {
+					serverErrors.incrementAndGet();
+					log.error("Server error for " + result.getRequest().getMethod() + " " + result.getRequest().getRequestURI(), exception);
+				}
+				if (status != 409) {
+					writes.incrementAndGet();
+					return result;
+				}
+				if (attempt == MAX_ATTEMPTS) {
+					givenUp.incrementAndGet();
+					return result;
+				}
+				retries.incrementAndGet();
+			}
+		}
+
+		/**
+		 * Helper function that polls H2 for sessions blocked on a lock until deadline
+		 *
+		 * @return the milliseconds sessions spent blocked, summed over all sessions
+		 */
+		long sampleLockWaits(long deadline) throws Exception {
+			double waited = 0;
+			try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+				long last = System.nanoTime();
+				while (System.currentTimeMillis() < deadline) {
+					Thread.sleep(1);
+					try (ResultSet blocked = statement.executeQuery(
+							"SELECT COUNT(*) FROM INFORMATION_SCHEMA.SESSIONS WHERE BLOCKER_ID IS NOT NULL")) {
+						blocked.next();
+						long now = System.nanoTime();
+						waited += blocked.getInt(1) * (now - last) / 1e6;
+						last = now;
+					}
+				}
+			}
+			return Math.round(waited);
+		}
+
+		void report() {
+			log.info(String.format("%2d threads: %6.0f writes/s, p50 %5.1f ms, p99 %6.1f ms, %5d retries,"
+					+ " %d deadlocks, %d lock timeouts, lock waits %5d ms, %d server errors, %d given up",
+					threads, writes.get() * 1000.0 / elapsedMillis,
+					latency.getValueAtPercentile(50) / 1000.0, latency.getValueAtPercentile(99) / 1000.0,
+					retries.get(), deadlocks.get(), lockTimeouts.get(), lockWaitMillis, serverErrors.get(), givenUp.get()));
+		}
+
+		void verify() {
+			assertAll(
+					() -> assertEquals(0, serverErrors.get(), "server errors"),
+					() -> assertEquals(0, givenUp.get(), "requests still conflicting after " + MAX_ATTEMPTS + " attempts"),
+					() -> acknowledgedUpdates.forEach((id, updates) -> repository.findById(id).ifPresent(employee ->
+							assertEquals(updates.get(), employee.getVersion(), "lost updates of employee " + id))),
+					() -> deleted.forEach(id -> assertFalse(repository.existsById(id), "resurrected employee " + id))
+			);
+		}
+
+		long create() throws Exception {
+			MvcResult result = send(post("/employees")
+					.content("{\"firstName\":\"Stress\",\"lastName\":\"Test\",\"role\":\"contender\"}")
+					.contentType(MediaType.APPLICATION_JSON));
+			assertEquals(201, result.getResponse().getStatus());
+			return id(result);
+		}
+
+		long id(MvcResult result) throws Exception {
+			return mapper.readTree(result.getResponse().getContentAsString()).get("id").asLong();
+		}
+	}
+}
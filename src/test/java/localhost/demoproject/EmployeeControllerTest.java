@@ -14,6 +14,8 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.gson.Gson;
 
 import static org.mockito.Mockito.*;
@@ -22,12 +24,16 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 class EmployeeControllerTest {
 	// Class to be tested
@@ -36,6 +42,7 @@ class EmployeeControllerTest {
 	// Dependencies
 	private static EmployeeRepository repository;
 	private static EmployeeModelAssembler assembler;
+	private static EmployeeStats stats;
 	
 	private static MockMvc mockMvc;
 
@@ -46,7 +53,9 @@ class EmployeeControllerTest {
 		
 		repository = mock(EmployeeRepository.class);
 		assembler = mock(EmployeeModelAssembler.class);
-		employeeController = new EmployeeController(repository, assembler);
+		stats = new EmployeeStats(repository);
+		employeeController = new EmployeeController(repository, assembler, Optional.empty(), stats,
+				mock(RoleDictionary.class), Optional.empty());
 		mockMvc = MockMvcBuilders.standaloneSetup(employeeController).build();
 	}
 	/**
@@ -178,6 +187,59 @@ class EmployeeControllerTest {
 		);
 	}
 	
+	@Test
+	/**
+	 * Tests EmployeeController's all method with a fields parameter to make sure only
+	 * the selected fields are read from the repository and put in the models
+	 */
+	void all_SelectedFields_ShouldReturnSparseList() {
+		Employee employee = new Employee();
+		employee.setId(1L);
+		employee.setRole("burglar");
+		EmployeeModel employeeModel = new EmployeeModel(1L, null, null, "burglar");
+		Set<EmployeeField> fields = EnumSet.of(EmployeeField.ID, EmployeeField.ROLE);
+		List<Employee> employees = Arrays.asList(employee);
+		
+		when(repository.findAllProjected(fields)).thenReturn(employees);
+		when(assembler.toCollectionModel(employees, fields)).thenReturn(new CollectionModel<>(Arrays.asList(employeeModel)));
+		
+		ResponseEntity<CollectionModel<EmployeeModel>> result 
+			= (ResponseEntity<CollectionModel<EmployeeModel>>) employeeController.all("id, role");
+		
+		assertAll(
+				() -> assertEquals(1, result.getBody().getContent().size()),
+				() -> assertEquals(employeeModel, getEmployeeModelFromResponse(result, 0)),
+				() -> assertNull(getEmployeeModelFromResponse(result, 0).getName()),
+				() -> assertEquals(200, result.getStatusCodeValue())
+		);
+	}
+	
+	@Test
+	/**
+	 * Tests EmployeeController's all method with an unknown field to make sure it
+	 * throws an InvalidEmployeeFieldException
+	 */
+	void all_UnknownField_ShouldThrowError() {
+		InvalidEmployeeFieldException exception = assertThrows(InvalidEmployeeFieldException.class, 
+				() -> employeeController.all("id,salary"));
+		
+		assertEquals("Invalid employee field salary: unknown field", exception.getMessage());
+	}
+	
+	@Test
+	/**
+	 * Tests EmployeeController's one method with a fields parameter to make sure it
+	 * throws an EmployeeNotFoundException when the id does not correspond to an Employee
+	 */
+	void one_SelectedFieldsOfNonexistentEmployee_ShouldReturnError() {
+		when(repository.findProjectedById(1L, EnumSet.of(EmployeeField.ROLE))).thenReturn(Optional.empty());
+		
+		EmployeeNotFoundException exception = assertThrows(EmployeeNotFoundException.class, 
+				() -> employeeController.one(1L, "role"));
+		
+		assertEquals("Could not find employee 1", exception.getMessage());
+	}
+	
 	@Test
 	/**
 	 * Tests EmployeeController's one method to make sure that it returns the correct employee
@@ -301,7 +363,7 @@ class EmployeeControllerTest {
 	 * with HTTP no content status
 	 */
 	void deleteEmployee_ExistingEmployee_ShouldReturnEmptyBody() {
-		when(repository.existsById(1L)).thenReturn(true);
+		when(repository.findById(1L)).thenReturn(Optional.of(new Employee("Jon", "Snow", "night's watch")));
 		
 		ResponseEntity<?> result = (ResponseEntity<?>) employeeController.deleteEmployee(1L);
 		
@@ -315,13 +377,122 @@ class EmployeeControllerTest {
 	 * it will still return a ResponseEntity with HTTP no content status
 	 */
 	void deleteEmployee_NonExistentEmployee_ShouldReturnEmptyBody() {
-		when(repository.existsById(1L)).thenReturn(false);
+		when(repository.findById(1L)).thenReturn(Optional.empty());
 		
 		ResponseEntity<?> result = (ResponseEntity<?>) employeeController.deleteEmployee(1L);
 		
 		assertEquals(204, result.getStatusCodeValue());
 	}
 	
+	@Test
+	/**
+	 * Test's EmployeeController's stats method to make sure that creates, replaces
+	 * and deletes through the controller are reflected in the headcount per role
+	 * without reading the employees again
+	 */
+	void stats_AfterCreateReplaceAndDelete_ShouldCountEmployeesPerRole() {
+		EmployeeRepository repository = mock(EmployeeRepository.class);
+		EmployeeModelAssembler assembler = mock(EmployeeModelAssembler.class);
+		EmployeeController employeeController = new EmployeeController(repository, assembler,
+				Optional.empty(), new EmployeeStats(repository), mock(RoleDictionary.class), Optional.empty());
+		Employee jon = new Employee("Jon", "Snow", "night's watch");
+		Employee sam = new Employee("Samwell", "Tarly", "night's watch");
+		
+		when(repository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+		when(assembler.toModel(any(Employee.class))).thenAnswer(
+				invocation -> fromEmployeeToEmployeeModel(invocation.getArgument(0), 1L));
+		employeeController.newEmployee(jon);
+		employeeController.newEmployee(sam);
+		when(repository.findById(1L)).thenReturn(Optional.of(jon));
+		employeeController.replaceEmployee(new Employee("Jon", "Snow", "king in the north"), 1L);
+		when(repository.findById(2L)).thenReturn(Optional.of(sam));
+		employeeController.deleteEmployee(2L);
+		verify(repository).deleteById(2L);
+		clearInvocations(repository);
+		
+		EmployeeStatsModel result = employeeController.stats().getBody();
+		
+		assertEquals(1, result.getHeadcount());
+		assertEquals(Collections.singletonMap("king in the north", 1L), result.getHeadcountByRole());
+		verifyNoInteractions(repository);
+	}
+	
+	@Test
+	/**
+	 * Test's EmployeeController's updateEmployee method to make sure that a patch
+	 * changing only the role keeps the other fields, saves the employee and
+	 * returns it with HTTP ok status
+	 */
+	void updateEmployee_ChangedRole_ShouldSaveAndReturnEmployee() throws Exception {
+		Employee employee = new Employee("Jon", "Snow", "night's watch");
+		Employee patchedEmployee = new Employee("Jon", "Snow", "king in the north");
+		EmployeeModel patchedEmployeeModel = fromEmployeeToEmployeeModel(patchedEmployee, 1L);
+		JsonNode patch = new ObjectMapper().readTree("{\"role\":\"king in the north\"}");
+		int expectedStatusCode = 200;
+		
+		clearInvocations(repository);
+		when(repository.findById(1L)).thenReturn(Optional.of(employee));
+		when(repository.save(patchedEmployee)).thenReturn(patchedEmployee);
+		when(assembler.toModel(patchedEmployee)).thenReturn(patchedEmployeeModel);
+		
+		ResponseEntity<EmployeeModel> result = (ResponseEntity<EmployeeModel>) employeeController.updateEmployee(patch, 1L);
+		
+		verify(repository).save(patchedEmployee);
+		helperAssertEqualsEmployee(patchedEmployee, result, expectedStatusCode);
+	}
+	
+	@Test
+	/**
+	 * Test's EmployeeController's updateEmployee method to make sure that a patch
+	 * that does not change any field does not write to the repository
+	 */
+	void updateEmployee_NothingChanged_ShouldNotSave() throws Exception {
+		Employee employee = new Employee("Jon", "Snow", "night's watch");
+		EmployeeModel employeeModel = fromEmployeeToEmployeeModel(employee, 1L);
+		JsonNode patch = new ObjectMapper().readTree("{\"role\":\"night's watch\",\"random\":\"text\"}");
+		
+		clearInvocations(repository);
+		when(repository.findById(1L)).thenReturn(Optional.of(employee));
+		when(assembler.toModel(employee)).thenReturn(employeeModel);
+		
+		ResponseEntity<EmployeeModel> result = (ResponseEntity<EmployeeModel>) employeeController.updateEmployee(patch, 1L);
+		
+		verify(repository, never()).save(any());
+		helperAssertEqualsEmployee(employee, result, 200);
+	}
+	
+	@Test
+	/**
+	 * Test's EmployeeController's updateEmployee method to make sure it throws an
+	 * EmployeeNotFoundException when given an id that does not correspond to an Employee
+	 */
+	void updateEmployee_NonexistentEmployee_ShouldThrowError() throws Exception {
+		JsonNode patch = new ObjectMapper().readTree("{\"role\":\"king in the north\"}");
+		
+		when(repository.findById(1L)).thenReturn(Optional.empty());
+		
+		EmployeeNotFoundException exception = assertThrows(EmployeeNotFoundException.class, 
+				() -> employeeController.updateEmployee(patch, 1L));
+		
+		assertEquals("Could not find employee 1", exception.getMessage());
+	}
+	
+	@Test
+	/**
+	 * Test's EmployeeController's updateEmployee method to make sure a patch removing
+	 * a required field is rejected
+	 */
+	void updateEmployee_NullField_ShouldThrowError() throws Exception {
+		JsonNode patch = new ObjectMapper().readTree("{\"lastName\":null}");
+		
+		when(repository.findById(1L)).thenReturn(Optional.of(new Employee("Jon", "Snow", "night's watch")));
+		
+		InvalidEmployeeFieldException exception = assertThrows(InvalidEmployeeFieldException.class, 
+				() -> employeeController.updateEmployee(patch, 1L));
+		
+		assertEquals("Invalid employee field lastName: must be a non-empty string", exception.getMessage());
+	}
+	
 	// Test exceptions
 	
 	@Test
@@ -471,6 +642,28 @@ class EmployeeControllerTest {
 		assertTrue(StringUtils.contains(exception, "Field error in object \'employee\' on field \'lastName\'"));
 	}
 	
+	@Test
+	/**
+	 * Tests HTTP patch request with the JSON merge patch content type
+	 * 
+	 * @throws Exception - expects HTTP 200 ok status
+	 */
+	void patch_MergePatchContentType_ShouldReturnOKStatus() throws Exception {
+		Employee employee = new Employee("Richard", "Dawkins", "ethologist");
+		EmployeeModel employeeModel = fromEmployeeToEmployeeModel(employee, 1L);
+		
+		employee.setId(1L);
+
+		when(repository.findById(1L)).thenReturn(Optional.of(employee));
+		when(repository.save(employee)).thenReturn(employee);
+		when(assembler.toModel(employee)).thenReturn(employeeModel);
+		
+		mockMvc.perform(patch("/employees/1")
+				.content("{\"role\":\"biologist\"}")
+				.contentType(EmployeeController.MERGE_PATCH_JSON_VALUE))
+				.andExpect(status().isOk());
+	}
+	
 	// Incorrect content type
 	@Test
 	/**
@@ -0,0 +1,352 @@
+package localhost.demoproject;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.core.env.Environment;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Open-model load harness. Starts the application on an ephemeral port, seeds the
+ * H2 database and drives a weighted mix of requests at a fixed arrival rate. Latency
+ * is measured from each request's intended start time, so a stalled server shows up
+ * in the percentiles instead of silently lowering the offered load.
+ *
+ * Run with {@code mvn test -Pload-test}. Every setting can be overridden with a
+ * system property, e.g. {@code -Dloadtest.rate=500 -Dloadtest.slo.get-one.p99=20}.
+ * <ul>
+ * <li>loadtest.dataset-size - number of employees seeded before the run</li>
+ * <li>loadtest.rate - requests per second offered to the server</li>
+ * <li>loadtest.warmup-seconds / loadtest.duration-seconds - unmeasured and measured phases;
+ * while the JIT compiles the request paths single requests take over a second,
+ * so a warm-up much shorter than the default 20 seconds breaks the p99 budget</li>
+ * <li>loadtest.max-concurrency - size of the client worker pool</li>
+ * <li>loadtest.mix - weights per operation, e.g. {@code get-all:5,get-one:65,post:10,put:10,delete:10}</li>
+ * <li>loadtest.slo.[operation.]p50|p90|p99|p999|max - latency budget in milliseconds</li>
+ * <li>loadtest.slo.error-rate - highest tolerated fraction of failed requests</li>
+ * </ul>
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@Slf4j
+class EmployeeLoadTest {
+	private static final String[] PERCENTILES = {"p50", "p90", "p99", "p999", "max"};
+
+	static {
+		// HttpURLConnection only keeps 5 idle connections per host by default
+		System.setProperty("http.maxConnections", "256");
+	}
+
+	enum Operation {
+		GET_ALL("get-all"), GET_ONE("get-one"), POST("post"), PUT("put"), DELETE("delete");
+
+		final String key;
+
+		Operation(String key) {
+			this.key = key;
+		}
+	}
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private EmployeeRepository repository;
+
+	@Autowired
+	private Environment env;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+	private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+	private final ConcurrentLinkedQueue<Long> createdIds = new ConcurrentLinkedQueue<>();
+	private long[] seededIds;
+
+	@Test
+	/**
+	 * Seeds the database, offers the configured load and fails when a latency or
+	 * error-rate SLO is exceeded during the measured phase
+	 */
+	void employeeEndpoints_OpenModelLoad_ShouldMeetSlos() throws InterruptedException {
+		int datasetSize = env.getProperty("loadtest.dataset-size", Integer.class, 1000);
+		int rate = env.getProperty("loadtest.rate", Integer.class, 50);
+		int warmupSeconds = env.getProperty("loadtest.warmup-seconds", Integer.class, 20);
+		int durationSeconds = env.getProperty("loadtest.duration-seconds", Integer.class, 30);
+		int maxConcurrency = env.getProperty("loadtest.max-concurrency", Integer.class, 64);
+		Operation[] schedule = parseMix(env.getProperty("loadtest.mix", "get-all:5,get-one:65,post:10,put:10,delete:10"));
+
+		seed(datasetSize);
+		for (Operation operation : Operation.values()) {
+			latencies.put(operation, new ConcurrentHistogram(3));
+			errors.put(operation, new LongAdder());
+		}
+
+		ExecutorService workers = Executors.newFixedThreadPool(maxConcurrency);
+		long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+		long start = System.nanoTime();
+		long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+		long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+
+		for (long i = 0; ; i++) {
+			long intended = start + i * interval;
+			if (intended >= end) {
+				break;
+			}
+
+			long wait;
+			while ((wait = intended - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(wait);
+			}
+
+			Operation operation = schedule[ThreadLocalRandom.current().nextInt(schedule.length)];
+			boolean measured = intended >= measureFrom;
+			workers.execute(() -> execute(operation, intended, measured));
+		}
+
+		workers.shutdown();
+		assertTrue(workers.awaitTermination(1, TimeUnit.MINUTES), "load generator did not drain");
+
+		report(durationSeconds);
+		assertSlos();
+	}
+
+	/**
+	 * Helper function that inserts datasetSize employees and remembers their ids
+	 * as targets for reads and replaces
+	 *
+	 * @param datasetSize - number of employees to insert
+	 */
+	private void seed(int datasetSize) {
+		List<Employee> batch = new ArrayList<>();
+		List<Long> ids = new ArrayList<>();
+
+		for (int i = 0; i < datasetSize; i++) {
+			batch.add(new Employee("Load" + i, "Test" + i, "role" + (i % 16)));
+			if (batch.size() == 1000 || i == datasetSize - 1) {
+				repository.saveAll(batch).forEach(employee -> ids.add(employee.getId()));
+				batch.clear();
+			}
+		}
+
+		seededIds = ids.stream().mapToLong(Long::longValue).toArray();
+	}
+
+	/**
+	 * Helper function that expands a mix such as "get-one:3,post:1" into a schedule
+	 * where each operation appears as often as its weight
+	 *
+	 * @param mix - comma separated list of operation:weight pairs
+	 * @return array to pick operations from uniformly
+	 */
+	private Operation[] parseMix(String mix) {
+		List<Operation> schedule = new ArrayList<>();
+
+		for (String entry : mix.split(",")) {
+			String[] parts = entry.trim().split(":");
+			Operation operation = null;
+			for (Operation candidate : Operation.values()) {
+				if (candidate.key.equals(parts[0])) {
+					operation = candidate;
+				}
+			}
+			assertNotNull(operation, "unknown operation in loadtest.mix: " + parts[0]);
+
+			for (int i = Integer.parseInt(parts[1]); i > 0; i--) {
+				schedule.add(operation);
+			}
+		}
+
+		return schedule.toArray(new Operation[0]);
+	}
+
+	/**
+	 * Helper function that sends one request and records its latency relative to the
+	 * time it was scheduled to start
+	 *
+	 * @param operation - the operation to perform
+	 * @param intended - System.nanoTime() at which the request should have started
+	 * @param measured - false while warming up
+	 */
+	private void execute(Operation operation, long intended, boolean measured) {
+		boolean ok;
+
+		try {
+			ok = send(operation);
+		} catch (IOException e) {
+			ok = false;
+		}
+
+		if (measured) {
+			latencies.get(operation).recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended));
+			if (!ok) {
+				errors.get(operation).increment();
+			}
+		}
+	}
+
+	private boolean send(Operation operation) throws IOException {
+		long seededId = seededIds[ThreadLocalRandom.current().nextInt(seededIds.length)];
+		String body = "{\"firstName\":\"Load\",\"lastName\":\"Generated\",\"role\":\"role"
+				+ ThreadLocalRandom.current().nextInt(16) + "\"}";
+
+		switch (operation) {
+		case GET_ALL:
+			return request("GET", "/employees", null).status == 200;
+		case GET_ONE:
+			return request("GET", "/employees/" + seededId, null).status == 200;
+		case POST:
+			Response created = request("POST", "/employees", body);
+			if (created.status != 201) {
+				return false;
+			}
+			JsonNode id = objectMapper.readTree(created.body).get("id");
+			createdIds.add(id.asLong());
+			return true;
+		case PUT:
+			return request("PUT", "/employees/" + seededId, body).status == 201;
+		case DELETE:
+			// Only delete what the harness created so reads and replaces keep hitting rows
+			Long target = createdIds.poll();
+			return request("DELETE", "/employees/" + (target != null ? target : Long.MAX_VALUE), null).status == 204;
+		default:
+			throw new IllegalStateException(operation.toString());
+		}
+	}
+
+	private Response request(String method, String path, String body) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+		connection.setRequestMethod(method);
+		connection.setRequestProperty("Accept", "application/json");
+
+		if (body != null) {
+			connection.setDoOutput(true);
+			connection.setRequestProperty("Content-Type", "application/json");
+			try (OutputStream out = connection.getOutputStream()) {
+				out.write(body.getBytes(StandardCharsets.UTF_8));
+			}
+		}
+
+		int status = connection.getResponseCode();
+		InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		if (in != null) {
+			try (InputStream stream = in) {
+				byte[] buffer = new byte[8192];
+				for (int n; (n = stream.read(buffer)) > 0; ) {
+					content.write(buffer, 0, n);
+				}
+			}
+		}
+
+		return new Response(status, new String(content.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	private void report(int durationSeconds) {
+		log.info(String.format("%-8s %8s %7s %9s %9s %9s %9s %9s %9s",
+				"endpoint", "count", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+
+		for (Operation operation : Operation.values()) {
+			Histogram histogram = latencies.get(operation);
+			log.info(String.format("%-8s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f",
+					operation.key,
+					histogram.getTotalCount(),
+					errors.get(operation).sum(),
+					histogram.getTotalCount() / (double) durationSeconds,
+					percentile(histogram, "p50"),
+					percentile(histogram, "p90"),
+					percentile(histogram, "p99"),
+					percentile(histogram, "p999"),
+					percentile(histogram, "max")));
+		}
+	}
+
+	private void assertSlos() {
+		List<String> violations = new ArrayList<>();
+		double maxErrorRate = env.getProperty("loadtest.slo.error-rate", Double.class, 0.001);
+
+		for (Operation operation : Operation.values()) {
+			Histogram histogram = latencies.get(operation);
+			if (histogram.getTotalCount() == 0) {
+				continue;
+			}
+
+			double errorRate = errors.get(operation).sum() / (double) histogram.getTotalCount();
+			if (errorRate > maxErrorRate) {
+				violations.add(String.format("%s error rate %.4f > %.4f", operation.key, errorRate, maxErrorRate));
+			}
+
+			for (String percentile : PERCENTILES) {
+				Double budget = env.getProperty("loadtest.slo." + operation.key + "." + percentile, Double.class,
+						env.getProperty("loadtest.slo." + percentile, Double.class, "p99".equals(percentile) ? 1000.0 : null));
+				double actual = percentile(histogram, percentile);
+				if (budget != null && actual > budget) {
+					violations.add(String.format("%s %s %.2f ms > %.2f ms", operation.key, percentile, actual, budget));
+				}
+			}
+		}
+
+		assertTrue(violations.isEmpty(), "SLO violations: " + violations);
+	}
+
+	/**
+	 * Helper function that reads a percentile in milliseconds from a histogram of
+	 * microsecond latencies
+	 *
+	 * @param histogram - recorded latencies in microseconds
+	 * @param percentile - one of p50, p90, p99, p999 or max
+	 * @return the latency at that percentile in milliseconds
+	 */
+	private double percentile(Histogram histogram, String percentile) {
+		long micros;
+
+		if ("max".equals(percentile)) {
+			micros = histogram.getMaxValue();
+		} else if ("p999".equals(percentile)) {
+			micros = histogram.getValueAtPercentile(99.9);
+		} else {
+			micros = histogram.getValueAtPercentile(Double.parseDouble(percentile.substring(1)));
+		}
+
+		return micros / 1000.0;
+	}
+
+	private static class Response {
+		final int status;
+		final String body;
+
+		Response(int status, String body) {
+			this.status = status;
+			this.body = body;
+		}
+	}
+}
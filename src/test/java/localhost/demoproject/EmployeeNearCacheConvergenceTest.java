@@ -0,0 +1,169 @@
+package localhost.demoproject;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Starts three instances sharing one database, each with its own near-cache and a
+ * UDP invalidation bus on loopback, and checks that every instance serves a write
+ * made on any other instance well before the cached entries would expire
+ */
+class EmployeeNearCacheConvergenceTest {
+	private static final int INSTANCES = 3;
+	private static final long CONVERGENCE_MILLIS = 5000;
+	
+	private static final List<ConfigurableApplicationContext> instances = new ArrayList<>();
+	private static final List<String> urls = new ArrayList<>();
+	private static final RestTemplate rest = new RestTemplate();
+	
+	@BeforeAll
+	static void start() throws Exception {
+		List<String> peers = new ArrayList<>();
+		for (int i = 0; i < INSTANCES; i++) {
+			try (DatagramSocket socket = new DatagramSocket(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+				peers.add("127.0.0.1:" + socket.getLocalPort());
+			}
+		}
+		
+		for (int i = 0; i < INSTANCES; i++) {
+			// Arguments rather than default properties, which application.properties overrides
+			ConfigurableApplicationContext instance = new SpringApplicationBuilder(DemoProjectApplication.class).run(
+					"--server.port=0",
+					"--spring.jmx.enabled=false",
+					"--spring.datasource.url=jdbc:h2:mem:near-cache-instances;DB_CLOSE_DELAY=-1",
+					"--spring.jpa.hibernate.ddl-auto=update",
+					"--employee.near-cache.enabled=true",
+					"--employee.near-cache.ttl=10m",
+					"--employee.near-cache.bus=udp",
+					"--employee.near-cache.udp.port=" + peers.get(i).split(":")[1],
+					"--employee.near-cache.udp.peers=" + String.join(",", peers));
+			instances.add(instance);
+			urls.add("http://localhost:" + ((WebServerApplicationContext) instance).getWebServer().getPort() + "/employees");
+		}
+	}
+	
+	@AfterAll
+	static void stop() {
+		instances.forEach(ConfigurableApplicationContext::close);
+	}
+	
+	private static long create(int instance, String role) {
+		String json = "{\"firstName\":\"Arya\",\"lastName\":\"Stark\",\"role\":\"" + role + "\"}";
+		return rest.postForObject(urls.get(instance), json(json), JsonNode.class).get("id").asLong();
+	}
+	
+	/**
+	 * Helper function that replaces the role, retrying while other instances win the
+	 * optimistic lock
+	 */
+	private static void replace(int instance, long id, String role) {
+		String json = "{\"firstName\":\"Arya\",\"lastName\":\"Stark\",\"role\":\"" + role + "\"}";
+		while (true) {
+			try {
+				rest.exchange(urls.get(instance) + "/" + id, HttpMethod.PUT, json(json), JsonNode.class);
+				return;
+			} catch (HttpClientErrorException e) {
+				assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+			}
+		}
+	}
+	
+	private static String role(int instance, long id) {
+		try {
+			return rest.getForObject(urls.get(instance) + "/" + id, JsonNode.class).get("role").asText();
+		} catch (HttpClientErrorException.NotFound e) {
+			return null;
+		}
+	}
+	
+	private static HttpEntity<String> json(String json) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_JSON);
+		return new HttpEntity<>(json, headers);
+	}
+	
+	/**
+	 * Helper function that waits until every instance serves role for id
+	 */
+	private static void assertConverges(long id, String role) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + CONVERGENCE_MILLIS;
+		for (int instance = 0; instance < INSTANCES; instance++) {
+			while (!Objects.equals(role, role(instance, id))) {
+				assertTrue(System.currentTimeMillis() < deadline,
+						"instance " + instance + " still serves " + role(instance, id) + " instead of " + role);
+				Thread.sleep(10);
+			}
+		}
+	}
+	
+	@Test
+	/**
+	 * Tests that a write and a delete on one instance reach the caches of all of them
+	 */
+	void put_OnOneInstance_ShouldReachCachesOfAllInstances() throws Exception {
+		long id = create(0, "cupbearer");
+		for (int instance = 0; instance < INSTANCES; instance++) {
+			assertEquals("cupbearer", role(instance, id));
+		}
+		
+		replace(1, id, "faceless");
+		assertConverges(id, "faceless");
+		
+		rest.delete(urls.get(2) + "/" + id);
+		assertConverges(id, null);
+	}
+	
+	@Test
+	/**
+	 * Tests that concurrent writes on every instance leave all caches serving the
+	 * last committed one
+	 */
+	void put_ConcurrentlyOnAllInstances_ShouldConvergeOnLastCommittedWrite() throws Exception {
+		long id = create(0, "v0");
+		ExecutorService writers = Executors.newFixedThreadPool(INSTANCES);
+		List<Future<?>> results = new ArrayList<>();
+		
+		for (int writer = 0; writer < INSTANCES; writer++) {
+			int instance = writer;
+			results.add(writers.submit(() -> {
+				for (int i = 0; i < 20; i++) {
+					// Reads between writes keep the caches of every instance filled
+					role(instance, id);
+					replace(instance, id, "instance" + instance + "-" + i);
+				}
+			}));
+		}
+		for (Future<?> result : results) {
+			result.get();
+		}
+		writers.shutdown();
+		
+		String committed = instances.get(0).getBean(EmployeeRepository.class).findById(id).get().getRole();
+		assertConverges(id, committed);
+	}
+}
@@ -0,0 +1,139 @@
+package localhost.demoproject;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class EmployeeNearCacheTest {
+	
+	private static Employee employee(long id, long version, String role) {
+		Employee employee = new Employee("Arya", "Stark", role);
+		employee.setId(id);
+		employee.setVersion(version);
+		return employee;
+	}
+	
+	private static EmployeeNearCache cache(String channel) {
+		return new EmployeeNearCache(new LocalInvalidationBus(channel), Duration.ofMinutes(1), 100);
+	}
+	
+	@Test
+	/**
+	 * Tests that a cached employee is served without loading it again
+	 */
+	void get_CachedEmployee_ShouldNotLoadAgain() {
+		EmployeeNearCache cache = cache("cached");
+		AtomicInteger loads = new AtomicInteger();
+		
+		cache.get(1L, id -> { loads.incrementAndGet(); return Optional.of(employee(id, 0, "faceless")); });
+		Employee employee = cache.get(1L, id -> { loads.incrementAndGet(); return Optional.empty(); }).get();
+		
+		assertEquals("faceless", employee.getRole());
+		assertEquals(1, loads.get());
+	}
+	
+	@Test
+	/**
+	 * Tests that a read finishing after the invalidation of a newer version does not
+	 * cache the older version it read
+	 */
+	void get_StaleReadFinishingAfterInvalidation_ShouldNotBeCached() {
+		EmployeeNearCache cache = cache("stale");
+		
+		// The read started before version 2 was written but returns after its invalidation
+		Employee stale = cache.get(1L, id -> {
+			cache.invalidate(id, 2);
+			return Optional.of(employee(id, 1, "cupbearer"));
+		}).get();
+		
+		assertEquals("cupbearer", stale.getRole());
+		assertEquals("faceless", cache.get(1L, id -> Optional.of(employee(id, 2, "faceless"))).get().getRole());
+		assertEquals("faceless", cache.get(1L, id -> Optional.empty()).get().getRole());
+	}
+	
+	@Test
+	/**
+	 * Tests that an invalidation arriving after a newer one does not let an older
+	 * version be cached
+	 */
+	void invalidate_ReorderedMessages_ShouldKeepNewestVersion() {
+		EmployeeNearCache cache = cache("reordered");
+		
+		cache.invalidate(1L, 3);
+		cache.invalidate(1L, 2);
+		cache.get(1L, id -> Optional.of(employee(id, 2, "cupbearer")));
+		
+		assertEquals("faceless", cache.get(1L, id -> Optional.of(employee(id, 3, "faceless"))).get().getRole());
+		assertEquals("faceless", cache.get(1L, id -> Optional.empty()).get().getRole());
+	}
+	
+	@Test
+	/**
+	 * Tests that a write or delete on one instance drops the copy cached by another
+	 */
+	void written_OnOtherInstance_ShouldInvalidateThisInstance() {
+		EmployeeNearCache here = cache("instances");
+		EmployeeNearCache there = cache("instances");
+		here.get(1L, id -> Optional.of(employee(id, 0, "cupbearer")));
+		
+		there.written(employee(1L, 1, "faceless"), false);
+		
+		assertEquals("faceless", here.get(1L, id -> Optional.of(employee(id, 1, "faceless"))).get().getRole());
+		
+		there.written(employee(1L, 1, "faceless"), true);
+		
+		assertFalse(here.get(1L, id -> Optional.empty()).isPresent());
+	}
+	
+	@Test
+	/**
+	 * Tests that tombstones count against max-entries, replacing cached copies when
+	 * the cache is full
+	 */
+	void invalidate_FullCache_ShouldKeepTombstonesWithinMaxEntries() {
+		EmployeeNearCache cache = new EmployeeNearCache(new LocalInvalidationBus("full"), Duration.ofMinutes(1), 2);
+		AtomicInteger loads = new AtomicInteger();
+		cache.get(1L, id -> Optional.of(employee(id, 0, "cupbearer")));
+		cache.get(2L, id -> Optional.of(employee(id, 0, "cupbearer")));
+		
+		cache.invalidate(3L, 5);
+		cache.get(3L, id -> { loads.incrementAndGet(); return Optional.of(employee(id, 4, "cupbearer")); });
+		cache.get(3L, id -> { loads.incrementAndGet(); return Optional.of(employee(id, 5, "faceless")); });
+		for (long id = 4; id < 100; id++) {
+			cache.invalidate(id, 1);
+		}
+		
+		assertEquals(2, loads.get());
+		assertEquals(2, cache.size());
+	}
+	
+	@Test
+	/**
+	 * Tests that a read on a cache full of live copies replaces the oldest one, and
+	 * that an expired entry makes room before any live copy is dropped
+	 */
+	void get_FullCache_ShouldReplaceOldestCopy() throws InterruptedException {
+		EmployeeNearCache cache = new EmployeeNearCache(new LocalInvalidationBus("oldest"), Duration.ofSeconds(1), 2);
+		AtomicInteger loads = new AtomicInteger();
+		for (long id = 1; id <= 3; id++) {
+			cache.get(id, id2 -> { loads.incrementAndGet(); return Optional.of(employee(id2, 0, "cupbearer")); });
+		}
+		cache.get(2L, id -> { loads.incrementAndGet(); return Optional.of(employee(id, 0, "cupbearer")); });
+		cache.get(3L, id -> { loads.incrementAndGet(); return Optional.of(employee(id, 0, "cupbearer")); });
+		int loadsWhenFull = loads.get();
+		
+		Thread.sleep(500);
+		cache.get(4L, id -> Optional.of(employee(id, 0, "cupbearer")));
+		Thread.sleep(600);
+		cache.get(5L, id -> Optional.of(employee(id, 0, "cupbearer")));
+		cache.get(4L, id -> { loads.incrementAndGet(); return Optional.of(employee(id, 0, "cupbearer")); });
+		
+		assertEquals(3, loadsWhenFull);
+		assertEquals(3, loads.get());
+		assertEquals(2, cache.size());
+	}
+}
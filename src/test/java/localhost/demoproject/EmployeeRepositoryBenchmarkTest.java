@@ -0,0 +1,97 @@
+package localhost.demoproject;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compares lookups by id and by role on the JPA repository with the off-heap engine.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@Slf4j
+class EmployeeRepositoryBenchmarkTest {
+	private static final int EMPLOYEES = 10000;
+	private static final int LOOKUPS = 50000;
+	
+	@Autowired
+	private EmployeeRepository jpaRepository;
+	
+	@Test
+	/**
+	 * Compares the mean time per findById and findByRole of both engines, and checks
+	 * that the off-heap engine finds by id faster
+	 */
+	void findById_OffHeapEngine_ShouldBeFasterThanJpa() {
+		EmployeeRepository offHeapRepository = new OffHeapEmployeeRepository(16, 1 << 16);
+		long[] jpaIds = seed(jpaRepository);
+		long[] offHeapIds = seed(offHeapRepository);
+		
+		// First round only warms up the JIT
+		lookups(jpaRepository, jpaIds);
+		lookups(offHeapRepository, offHeapIds);
+		double jpaNanos = lookups(jpaRepository, jpaIds);
+		double offHeapNanos = lookups(offHeapRepository, offHeapIds);
+		
+		double jpaRoleNanos = roleLookups(jpaRepository);
+		double offHeapRoleNanos = roleLookups(offHeapRepository);
+		
+		log.info(String.format("findById over %d employees: jpa %.0f ns/op, off-heap %.0f ns/op (%.1fx)",
+				EMPLOYEES, jpaNanos, offHeapNanos, jpaNanos / offHeapNanos));
+		log.info(String.format("findByRole over %d employees: jpa %.0f ns/op, off-heap %.0f ns/op (%.1fx)",
+				EMPLOYEES, jpaRoleNanos, offHeapRoleNanos, jpaRoleNanos / offHeapRoleNanos));
+		
+		assertTrue(offHeapNanos < jpaNanos);
+	}
+	
+	private long[] seed(EmployeeRepository repository) {
+		List<Employee> employees = new ArrayList<>();
+		for (int i = 0; i < EMPLOYEES; i++) {
+			employees.add(new Employee("Bench" + i, "Mark" + i, "role" + (i % 100)));
+		}
+		
+		return repository.saveAll(employees).stream().mapToLong(Employee::getId).toArray();
+	}
+	
+	/**
+	 * @return mean nanoseconds per findById
+	 */
+	private double lookups(EmployeeRepository repository, long[] ids) {
+		long found = 0;
+		long start = System.nanoTime();
+		
+		for (int i = 0; i < LOOKUPS; i++) {
+			if (repository.findById(ids[ThreadLocalRandom.current().nextInt(ids.length)]).isPresent()) {
+				found++;
+			}
+		}
+		
+		double nanos = (System.nanoTime() - start) / (double) LOOKUPS;
+		assertEquals(LOOKUPS, found);
+		return nanos;
+	}
+	
+	/**
+	 * @return mean nanoseconds per findByRole
+	 */
+	private double roleLookups(EmployeeRepository repository) {
+		int rounds = 500;
+		long start = System.nanoTime();
+		
+		for (int i = 0; i < rounds; i++) {
+			assertFalse(repository.findByRole("role" + (i % 100)).isEmpty());
+		}
+		
+		return (System.nanoTime() - start) / (double) rounds;
+	}
+}
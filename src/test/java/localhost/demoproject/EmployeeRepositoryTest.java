@@ -0,0 +1,110 @@
+package localhost.demoproject;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@DataJpaTest
+@Import({EmployeeChangeLog.class, RoleDictionary.class}) // needed by the Employee entity listener and converter
+class EmployeeRepositoryTest {
+	@Autowired
+	private EmployeeRepository repository;
+	
+	@Autowired
+	private RoleDictionary roleDictionary;
+	
+	@Autowired
+	private TestEntityManager entityManager;
+	
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	
+	@Test
+	/**
+	 * Tests that findAllProjected only fills in the selected fields
+	 */
+	void findAllProjected_IdAndRole_ShouldOnlySetIdAndRole() {
+		Employee saved = repository.save(new Employee("Bilbo", "Baggins", "burglar"));
+		
+		List<Employee> employees = repository.findAllProjected(EnumSet.of(EmployeeField.ID, EmployeeField.ROLE));
+		
+		assertEquals(1, employees.size());
+		assertAll(
+				() -> assertEquals(saved.getId(), employees.get(0).getId()),
+				() -> assertEquals("burglar", employees.get(0).getRole()),
+				() -> assertNull(employees.get(0).getFirstName()),
+				() -> assertNull(employees.get(0).getLastName())
+		);
+	}
+	
+	@Test
+	/**
+	 * Tests that findByRoleProjected only returns employees with the role and only
+	 * fills in the selected fields
+	 */
+	void findByRoleProjected_FirstName_ShouldOnlySetFirstName() {
+		repository.save(new Employee("Thorin", "Oakenshield", "king under the mountain"));
+		repository.save(new Employee("Balin", "Fundin", "advisor"));
+		repository.flush();
+		
+		List<Employee> employees = repository.findByRoleProjected("king under the mountain", EnumSet.of(EmployeeField.FIRST_NAME));
+		
+		assertEquals(1, employees.size());
+		assertAll(
+				() -> assertEquals("Thorin", employees.get(0).getFirstName()),
+				() -> assertNull(employees.get(0).getId()),
+				() -> assertNull(employees.get(0).getRole())
+		);
+		assertTrue(repository.findByRoleProjected("balrog", EnumSet.of(EmployeeField.FIRST_NAME)).isEmpty());
+	}
+	
+	@Test
+	/**
+	 * Tests that findProjectedById also reads the id when only the links are selected
+	 */
+	void findProjectedById_Links_ShouldSetId() {
+		Employee saved = repository.save(new Employee("Bilbo", "Baggins", "burglar"));
+		
+		Employee employee = repository.findProjectedById(saved.getId(), EnumSet.of(EmployeeField.LINKS)).get();
+		
+		assertEquals(saved.getId(), employee.getId());
+		assertNull(employee.getRole());
+		assertFalse(repository.findProjectedById(saved.getId() + 1, EnumSet.of(EmployeeField.LINKS)).isPresent());
+	}
+	
+	@Test
+	/**
+	 * Tests that the role is stored as its dictionary code and that employees read
+	 * back with the same role share one role instance
+	 */
+	void findByRole_SameRole_ShouldStoreCodeAndShareRoleInstance() {
+		repository.save(new Employee("Fili", "Durin", new String("dwarf")));
+		repository.save(new Employee("Kili", "Durin", new String("dwarf")));
+		repository.flush();
+		entityManager.clear();
+		
+		List<Employee> dwarves = repository.findByRole("dwarf");
+		
+		assertEquals(2, dwarves.size());
+		assertSame(dwarves.get(0).getRole(), dwarves.get(1).getRole());
+		assertEquals(jdbcTemplate.queryForObject("SELECT code FROM employee_role WHERE name = 'dwarf'", Integer.class),
+				jdbcTemplate.queryForObject("SELECT DISTINCT role_code FROM employee WHERE last_name = 'Durin'", Integer.class));
+	}
+	
+	@Test
+	/**
+	 * Tests that looking up a role nobody has does not add it to the dictionary
+	 */
+	void findByRole_UnknownRole_ShouldNotAddRole() {
+		assertTrue(repository.findByRole("balrog").isEmpty());
+		assertNull(roleDictionary.find("balrog"));
+	}
+}
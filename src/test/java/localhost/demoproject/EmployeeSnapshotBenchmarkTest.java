@@ -0,0 +1,84 @@
+package localhost.demoproject;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Measures the heap held by a million employees as entities, as entities sharing
+ * dictionary roles, and as an {@link EmployeeSnapshot}. Run with
+ * {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@Slf4j
+class EmployeeSnapshotBenchmarkTest {
+	private static final int EMPLOYEES = 1000000;
+	private static final int ROLES = 20;
+	
+	@Test
+	/**
+	 * Measures the heap held by each representation and checks that the snapshot holds
+	 * the least
+	 */
+	void of_MillionEmployees_ShouldUseLessHeapThanEntities() {
+		EmbeddedDatabase database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+		new JdbcTemplate(database).execute("CREATE TABLE employee_role"
+				+ " (code INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(255) NOT NULL UNIQUE)");
+		RoleDictionary dictionary = new RoleDictionary(database);
+		
+		long baseline = usedHeap();
+		List<Employee> employees = employees(null);
+		long entityBytes = usedHeap() - baseline;
+		
+		List<Employee> canonical = employees(dictionary);
+		long canonicalBytes = usedHeap() - baseline - entityBytes;
+		canonical = null;
+		
+		EmployeeSnapshot snapshot = EmployeeSnapshot.of(employees);
+		employees = null;
+		long snapshotBytes = usedHeap() - baseline;
+		
+		log.info(String.format("Heap for %d employees with %d roles: entities %d MB, entities with dictionary roles %d MB,"
+				+ " snapshot %d MB (%.1fx smaller than entities)", EMPLOYEES, ROLES, entityBytes >> 20, canonicalBytes >> 20,
+				snapshotBytes >> 20, entityBytes / (double) snapshotBytes));
+		
+		assertEquals(EMPLOYEES, snapshot.size());
+		assertTrue(canonicalBytes < entityBytes);
+		assertTrue(snapshotBytes < canonicalBytes);
+		database.shutdown();
+	}
+	
+	/**
+	 * Helper function that creates employees the way they are read from the table:
+	 * every row gets its own role string unless dictionary supplies a shared one
+	 */
+	private List<Employee> employees(RoleDictionary dictionary) {
+		List<Employee> employees = new ArrayList<>(EMPLOYEES);
+		for (int i = 0; i < EMPLOYEES; i++) {
+			String role = "role number " + (i % ROLES);
+			Employee employee = new Employee("First" + i, "Last" + i,
+					dictionary != null ? dictionary.role(dictionary.code(role)) : role);
+			employee.setId((long) i);
+			employees.add(employee);
+		}
+		return employees;
+	}
+	
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,149 @@
+package localhost.demoproject;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+class EmployeeSnapshotTest {
+	private EmbeddedDatabase database;
+	private RoleDictionary dictionary;
+	
+	@BeforeEach
+	void setup() {
+		database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+		new JdbcTemplate(database).execute("CREATE TABLE employee_role"
+				+ " (code INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(255) NOT NULL UNIQUE)");
+		dictionary = new RoleDictionary(database);
+	}
+	
+	@AfterEach
+	void shutdown() {
+		database.shutdown();
+	}
+	
+	@Test
+	/**
+	 * Tests that every row reads back as the employee it was built from, with one role
+	 * instance per role
+	 */
+	void of_Employees_ShouldKeepEveryFieldOfEveryRow() {
+		List<Employee> employees = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			Employee employee = new Employee("Fïrst" + i, "Last" + i, "role" + (i % 3));
+			employee.setId(1000L + i);
+			employees.add(employee);
+		}
+		
+		EmployeeSnapshot snapshot = EmployeeSnapshot.of(employees);
+		
+		assertEquals(100, snapshot.size());
+		for (int row = 0; row < employees.size(); row++) {
+			assertEquals(employees.get(row), snapshot.employee(row));
+		}
+		assertSame(snapshot.role(0), snapshot.role(3));
+	}
+	
+	@Test
+	/**
+	 * Tests that the role scans count and find every row of a role, and nothing for an
+	 * unknown role
+	 */
+	void countPerRole_ShouldCountEveryRole() {
+		List<Employee> employees = new ArrayList<>();
+		Map<String, Long> expected = new HashMap<>();
+		for (int i = 0; i < 1000; i++) {
+			Employee employee = new Employee("First", "Last", "role" + (i % 7 == 0 ? i % 2 : 2));
+			employee.setId((long) i);
+			employees.add(employee);
+			expected.merge(employee.getRole(), 1L, Long::sum);
+		}
+		
+		EmployeeSnapshot snapshot = EmployeeSnapshot.of(employees);
+		
+		assertEquals(expected, snapshot.countPerRole());
+		assertEquals(expected.get("role1").intValue(), snapshot.idsWithRole("role1").length);
+		assertEquals(expected.get("role1").intValue(), snapshot.employeesWithRole("role1").size());
+		assertEquals(0, snapshot.idsWithRole("unknown").length);
+		assertTrue(snapshot.employeesWithRole("unknown").isEmpty());
+	}
+	
+	@Test
+	/**
+	 * Tests that the dictionary hands out one code and one instance per role, also to
+	 * another dictionary over the same table
+	 */
+	void role_SameRoleInDifferentInstances_ShouldReturnCanonicalInstance() {
+		int code = dictionary.code(new String("wizard"));
+		
+		assertEquals(code, dictionary.code(new String("wizard")));
+		assertSame(dictionary.role(code), dictionary.role(dictionary.code(new String("wizard"))));
+		// A second dictionary over the same table sees the same codes
+		assertEquals(code, new RoleDictionary(database).find("wizard").intValue());
+	}
+	
+	@Test
+	/**
+	 * Tests that the role scans of a storage engine without a role index load the
+	 * employees once, and again only after a write
+	 */
+	void countPerRole_RepositoryWithoutRoleIndex_ShouldScanSnapshotUntilNextWrite() {
+		AtomicInteger loads = new AtomicInteger();
+		Map<Long, Employee> rows = new HashMap<>();
+		AbstractEmployeeRepository repository = new AbstractEmployeeRepository() {
+			@Override
+			protected Long store(Employee employee) {
+				long id = employee.getId() != null ? employee.getId() : rows.size() + 1;
+				rows.put(id, new Employee(employee.getFirstName(), employee.getLastName(), employee.getRole()));
+				rows.get(id).setId(id);
+				return id;
+			}
+			
+			@Override
+			protected Optional<Employee> load(Long id) {
+				return Optional.ofNullable(rows.get(id));
+			}
+			
+			@Override
+			protected boolean remove(Long id) {
+				return rows.remove(id) != null;
+			}
+			
+			@Override
+			protected List<Employee> loadAll() {
+				loads.incrementAndGet();
+				return new ArrayList<>(rows.values());
+			}
+			
+			@Override
+			protected long size() {
+				return rows.size();
+			}
+		};
+		repository.save(new Employee("Gandalf", "Grey", "wizard"));
+		Employee saruman = repository.save(new Employee("Saruman", "White", "wizard"));
+		
+		assertEquals(Collections.singletonMap("wizard", 2L), repository.countPerRole());
+		assertEquals(2, repository.findByRole("wizard").size());
+		assertEquals(1, loads.get());
+		
+		repository.deleteById(saruman.getId());
+		
+		assertEquals(Collections.singletonMap("wizard", 1L), repository.countPerRole());
+		assertEquals("Gandalf", repository.findByRole("wizard").get(0).getFirstName());
+		assertEquals(2, loads.get());
+	}
+}
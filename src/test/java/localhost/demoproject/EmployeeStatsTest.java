@@ -0,0 +1,84 @@
+package localhost.demoproject;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class EmployeeStatsTest {
+	
+	@Test
+	/**
+	 * Tests that a recount replaces counts that drifted from the repository
+	 */
+	void reconcile_DriftedCounts_ShouldReplaceCountsWithRecount() {
+		EmployeeRepository repository = mock(EmployeeRepository.class);
+		EmployeeStats stats = new EmployeeStats(repository);
+		stats.created("burglar");
+		stats.deleted("wizard");
+		
+		Map<String, Long> counted = new HashMap<>();
+		counted.put("burglar", 2L);
+		counted.put("wizard", 1L);
+		when(repository.countPerRole()).thenReturn(counted);
+		stats.reconcile();
+		
+		assertEquals(counted, stats.headcount());
+	}
+	
+	@Test
+	/**
+	 * Tests that a write reported while counting is kept on top of the recount
+	 */
+	void reconcile_WriteWhileCounting_ShouldKeepIncrementalCounts() {
+		EmployeeRepository repository = mock(EmployeeRepository.class);
+		EmployeeStats stats = new EmployeeStats(repository);
+		
+		when(repository.countPerRole()).thenAnswer(invocation -> {
+			stats.created("burglar");
+			return Collections.emptyMap();
+		});
+		stats.reconcile();
+		
+		assertEquals(Collections.singletonMap("burglar", 1L), stats.headcount());
+	}
+	
+	@Test
+	/**
+	 * Tests that the first recount is loaded even though writes keep arriving, with
+	 * those writes applied on top
+	 */
+	void reconcile_FirstCountDuringWrites_ShouldLoadRecountPlusWrites() {
+		EmployeeRepository repository = mock(EmployeeRepository.class);
+		EmployeeStats stats = new EmployeeStats(repository);
+		
+		when(repository.countPerRole()).thenAnswer(invocation -> {
+			stats.created("burglar");
+			stats.deleted("wizard");
+			return Collections.singletonMap("wizard", 3L);
+		});
+		stats.reconcile();
+		
+		Map<String, Long> expected = new HashMap<>();
+		expected.put("burglar", 1L);
+		expected.put("wizard", 2L);
+		assertEquals(expected, stats.headcount());
+	}
+	
+	@Test
+	/**
+	 * Tests that a role disappears once its last employee moves to another role
+	 */
+	void changed_LastEmployeeOfRole_ShouldDropRole() {
+		EmployeeStats stats = new EmployeeStats(mock(EmployeeRepository.class));
+		stats.created("night's watch");
+		
+		stats.changed("night's watch", "king in the north");
+		
+		assertEquals(Collections.singletonMap("king in the north", 1L), stats.headcount());
+	}
+}
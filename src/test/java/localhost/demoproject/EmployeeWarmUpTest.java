@@ -0,0 +1,73 @@
+package localhost.demoproject;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.url=jdbc:h2:mem:warm-up;DB_CLOSE_DELAY=-1",
+		"employee.warm-up.enabled=true",
+		"employee.warm-up.max-time=20s",
+		"employee.warm-up.requests-per-round=100",
+		"employee.near-cache.enabled=true",
+		"employee.near-cache.local.channel=warm-up"
+})
+class EmployeeWarmUpTest {
+	// Subscribed before the context starts, so no invalidation of the warm-up is missed
+	private static final AtomicInteger invalidations = new AtomicInteger();
+	static {
+		new LocalInvalidationBus("warm-up").subscribe(invalidation -> invalidations.incrementAndGet());
+	}
+	
+	@Autowired
+	private EmployeeWarmUp warmUp;
+
+	@Autowired
+	private TestRestTemplate rest;
+
+	@Autowired
+	private EmployeeRepository repository;
+
+	@Autowired
+	private EmployeeChangeRepository changeRepository;
+
+	@Autowired
+	private EmployeeStats stats;
+
+	@Autowired
+	private EmployeeAccessInterceptor accessInterceptor;
+
+	@Test
+	/**
+	 * Tests that the instance reports ready once the warm-up is over, and that the
+	 * warm-up leaves no employees, changes, stats, invalidations or hot keys behind
+	 */
+	void health_AfterWarmUp_ShouldBeUpWithNothingWritten() throws Exception {
+		long deadline = System.currentTimeMillis() + 60000;
+		while (warmUp.health().getStatus().equals(Status.OUT_OF_SERVICE) && System.currentTimeMillis() < deadline) {
+			assertEquals(503, rest.getForEntity("/actuator/health", String.class).getStatusCodeValue());
+			Thread.sleep(100);
+		}
+		Health health = warmUp.health();
+
+		assertAll(
+				() -> assertEquals(Status.UP, health.getStatus()),
+				() -> assertTrue((Integer) health.getDetails().get("rounds") > 0),
+				() -> assertEquals(0L, health.getDetails().get("serverErrors")),
+				() -> assertEquals(200, rest.getForEntity("/actuator/health", String.class).getStatusCodeValue()),
+				// Only the two employees saved by LoadDatabase
+				() -> assertEquals(2, repository.count()),
+				() -> assertEquals(2, changeRepository.count()),
+				() -> assertEquals(repository.countPerRole(), stats.headcount()),
+				() -> assertEquals(0, invalidations.get()),
+				() -> assertTrue(accessInterceptor.ids().top().isEmpty())
+		);
+	}
+}
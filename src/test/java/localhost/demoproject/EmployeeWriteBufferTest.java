@@ -0,0 +1,101 @@
+package localhost.demoproject;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@SpringBootTest(properties = {"employee.write-mode=group-commit", "employee.group-commit.max-delay-ms=20"})
+class EmployeeWriteBufferTest {
+	@Autowired
+	private EmployeeWriteBuffer writeBuffer;
+
+	@Autowired
+	private EmployeeRepository repository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	/**
+	 * Tests that concurrent saves through the write buffer each come back with their
+	 * own generated id and are all visible in the repository once save returns
+	 */
+	void save_ConcurrentEmployees_ShouldCommitEachWithItsOwnId() throws Exception {
+		ExecutorService clients = Executors.newFixedThreadPool(16);
+		List<Future<Employee>> results = new ArrayList<>();
+
+		for (int i = 0; i < 200; i++) {
+			Employee employee = new Employee("Group" + i, "Commit", "tester");
+			results.add(clients.submit(() -> writeBuffer.save(employee)));
+		}
+
+		Set<Long> ids = new HashSet<>();
+		for (Future<Employee> result : results) {
+			Employee saved = result.get();
+			assertNotNull(saved.getId());
+			ids.add(saved.getId());
+		}
+		clients.shutdown();
+
+		assertEquals(200, ids.size());
+		assertEquals(200, repository.findAllById(ids).size());
+	}
+
+	@Test
+	/**
+	 * Tests that an employee violating a column constraint fails on its own without
+	 * failing the other employees committed in the same group
+	 */
+	void save_InvalidEmployeeInGroup_ShouldOnlyFailThatEmployee() throws Exception {
+		ExecutorService clients = Executors.newFixedThreadPool(2);
+
+		Future<Employee> valid = clients.submit(() -> writeBuffer.save(new Employee("Valid", "Employee", "tester")));
+		Future<Employee> invalid = clients.submit(() -> writeBuffer.save(new Employee("Invalid", "Employee", null)));
+		clients.shutdown();
+
+		assertNotNull(valid.get().getId());
+		assertTrue(repository.existsById(valid.get().getId()));
+		assertThrows(Exception.class, () -> invalid.get());
+	}
+
+	@Test
+	/**
+	 * Tests that saves racing with shutdown either commit or fail, and none of them
+	 * waits forever for a writer that has stopped
+	 */
+	void save_DuringShutdown_ShouldCommitOrFailEveryEmployee() throws Exception {
+		EmployeeWriteBuffer buffer = new EmployeeWriteBuffer(repository, transactionManager, 10, 1, 1000);
+		ExecutorService clients = Executors.newFixedThreadPool(8);
+		List<Future<Employee>> results = new ArrayList<>();
+
+		for (int i = 0; i < 200; i++) {
+			Employee employee = new Employee("Shutdown" + i, "Race", "tester");
+			results.add(clients.submit(() -> buffer.save(employee)));
+		}
+		buffer.shutdown();
+		clients.shutdown();
+
+		assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+			for (Future<Employee> result : results) {
+				try {
+					assertNotNull(result.get().getId());
+				} catch (ExecutionException e) {
+					assertTrue(e.getCause() instanceof IllegalStateException);
+				}
+			}
+		});
+	}
+}
@@ -0,0 +1,32 @@
+package localhost.demoproject;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Runs the employee endpoints with the fast-start profile. Hibernate validates the
+ * pre-generated schema against the entities, so the context fails to start when the
+ * two drift apart.
+ */
+@ActiveProfiles("fast-start")
+@TestPropertySource(properties = {
+		"spring.datasource.url=jdbc:h2:mem:fast-start;DB_CLOSE_DELAY=-1",
+		"spring.jpa.hibernate.ddl-auto=validate"
+})
+class FastStartEmployeeApiTest extends EmployeeApiTest {
+	@Autowired
+	private ApplicationContext context;
+	
+	@Test
+	/**
+	 * Tests that the fast-start profile does not register the sample data loader
+	 */
+	void context_FastStartProfile_ShouldNotPreloadEmployees() {
+		assertFalse(context.containsBean("initDatabase"));
+	}
+}
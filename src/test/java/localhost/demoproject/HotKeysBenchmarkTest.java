@@ -0,0 +1,108 @@
+package localhost.demoproject;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Measures the cost {@link HotKeys} adds to every request, as recorded by
+ * {@link EmployeeAccessInterceptor} from several threads at once. Run with
+ * {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@Slf4j
+class HotKeysBenchmarkTest {
+	private static final int RECORDS = 10000000;
+	private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+	@Test
+	/**
+	 * Measures the mean core time per request under skewed traffic from several
+	 * threads, including building the query shape, and checks that it stays well
+	 * under a microsecond
+	 */
+	void record_SkewedKeys_ShouldCostWellUnderAMicrosecond() throws Exception {
+		EmployeeAccessInterceptor interceptor = new EmployeeAccessInterceptor(10, Duration.ofMinutes(1), 6);
+		EmployeeController controller = new EmployeeController(null, null, Optional.empty(), null, null, Optional.empty());
+		HandlerMethod handler = new HandlerMethod(controller, EmployeeController.class.getDeclaredMethod("one", Long.class));
+		MockHttpServletRequest[] requests = new MockHttpServletRequest[1 << 12];
+		Random random = new Random(42);
+		for (int i = 0; i < requests.length; i++) {
+			// Roughly Zipfian: small ids are far more likely
+			requests[i] = request((long) Math.exp(random.nextDouble() * Math.log(100000)), i % 8 == 0);
+		}
+
+		// First round only warms up the JIT
+		record(interceptor, handler, requests);
+		double nanos = record(interceptor, handler, requests);
+
+		log.info(String.format("HotKeys through the interceptor, %d threads: %.1f ns/op, top %s, shapes %s",
+				THREADS, nanos, interceptor.ids().top().subList(0, 3), interceptor.queries().top()));
+		assertTrue(nanos < 1000);
+	}
+
+	/**
+	 * Helper function that builds a GET /employees/{id} request as the interceptor
+	 * sees it after handler mapping
+	 *
+	 * @param id - id asked for
+	 * @param fields - whether the request also asks for fields
+	 * @return the request
+	 */
+	private static MockHttpServletRequest request(long id, boolean fields) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/employees/" + id);
+		request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/employees/{id}");
+		request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Collections.singletonMap("id", Long.toString(id)));
+		if (fields) {
+			request.addParameter("fields", "firstName,role");
+		}
+		return request;
+	}
+
+	/**
+	 * Helper function that sends RECORDS requests through the interceptor, split over
+	 * THREADS threads
+	 *
+	 * @return mean core time per request in nanoseconds
+	 */
+	private double record(EmployeeAccessInterceptor interceptor, HandlerMethod handler, MockHttpServletRequest[] requests) throws Exception {
+		ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		List<Future<?>> done = new ArrayList<>();
+
+		long start = System.nanoTime();
+		for (int thread = 0; thread < THREADS; thread++) {
+			int offset = thread * 997;
+			done.add(threads.submit(() -> {
+				for (int i = 0; i < RECORDS / THREADS; i++) {
+					interceptor.preHandle(requests[(offset + i) & (requests.length - 1)], response, handler);
+				}
+			}));
+		}
+		for (Future<?> thread : done) {
+			thread.get();
+		}
+		long elapsed = System.nanoTime() - start;
+		threads.shutdown();
+
+		int cores = Math.min(THREADS, Runtime.getRuntime().availableProcessors());
+		return elapsed * (double) cores / RECORDS;
+	}
+}
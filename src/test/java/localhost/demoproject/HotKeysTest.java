@@ -0,0 +1,62 @@
+package localhost.demoproject;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class HotKeysTest {
+	
+	@Test
+	/**
+	 * Tests that the hottest keys are reported in order of frequency despite a long
+	 * tail of keys seen once
+	 */
+	void top_FewHotKeysAmongManyColdKeys_ShouldReportHotKeysFirst() {
+		HotKeys hotKeys = new HotKeys(3, 60000, 6, () -> 0L);
+		Random random = new Random(42);
+		
+		for (int i = 0; i < 100000; i++) {
+			// Keys 1, 2 and 3 get 10%, 5% and 2.5% of the traffic, the rest is spread over a million keys
+			int dice = random.nextInt(40);
+			hotKeys.record(dice < 4 ? 1 : dice < 6 ? 2 : dice < 7 ? 3 : 1000 + random.nextInt(1000000));
+		}
+		
+		List<HotKeys.HotKey> top = hotKeys.top();
+		assertEquals(3, top.size());
+		assertEquals("1", top.get(0).getKey());
+		assertEquals("2", top.get(1).getKey());
+		assertEquals("3", top.get(2).getKey());
+		// Count-min never undercounts
+		assertTrue(top.get(0).getEstimate() >= 9000);
+	}
+	
+	@Test
+	/**
+	 * Tests that keys last seen longer than the window ago drop out of the top
+	 */
+	void top_KeysOlderThanWindow_ShouldBeForgotten() {
+		AtomicLong clock = new AtomicLong();
+		HotKeys hotKeys = new HotKeys(2, 60000, 6, clock::get);
+		
+		for (int i = 0; i < 100; i++) {
+			hotKeys.record("GET /employees");
+		}
+		clock.set(30000);
+		hotKeys.record("GET /employees/{id}");
+		
+		assertEquals(100, hotKeys.top().get(0).getEstimate());
+		assertEquals(2, hotKeys.top().size());
+		
+		clock.set(65000);
+		hotKeys.record("GET /employees/{id}");
+		
+		List<HotKeys.HotKey> top = hotKeys.top();
+		assertEquals(1, top.size());
+		assertEquals("GET /employees/{id}", top.get(0).getKey());
+		assertEquals(2, top.get(0).getEstimate());
+	}
+}
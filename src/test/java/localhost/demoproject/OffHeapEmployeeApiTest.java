@@ -0,0 +1,18 @@
+package localhost.demoproject;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ActiveProfiles;
+
+@ActiveProfiles("off-heap")
+class OffHeapEmployeeApiTest extends EmployeeApiTest {
+	
+	@Test
+	/**
+	 * Tests that the off-heap profile replaces the JPA repository
+	 */
+	void repository_OffHeapProfile_ShouldUseOffHeapRepository() {
+		assertTrue(repository instanceof OffHeapEmployeeRepository);
+	}
+}
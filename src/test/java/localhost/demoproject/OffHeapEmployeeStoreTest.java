@@ -0,0 +1,157 @@
+package localhost.demoproject;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+class OffHeapEmployeeStoreTest {
+	
+	@Test
+	/**
+	 * Tests that a stored employee is read back with every field, and a missing id is null
+	 */
+	void put_ThenGet_ShouldReturnEmployee() {
+		OffHeapEmployeeStore store = new OffHeapEmployeeStore(4, 64);
+		
+		store.put(7L, "Bilbo", "Baggins", "burglar");
+		Employee employee = store.get(7L);
+		
+		assertAll(
+				() -> assertEquals(7L, employee.getId()),
+				() -> assertEquals("Bilbo Baggins", employee.getName()),
+				() -> assertEquals("burglar", employee.getRole()),
+				() -> assertNull(store.get(8L)),
+				() -> assertEquals(1, store.size())
+		);
+	}
+	
+	@Test
+	/**
+	 * Tests that replacing an employee moves its id from the old role to the new one
+	 */
+	void put_ExistingId_ShouldReplaceRecordAndRoleIndex() {
+		OffHeapEmployeeStore store = new OffHeapEmployeeStore(4, 64);
+		
+		store.put(1L, "Jon", "Snow", "night's watch");
+		store.put(1L, "Jon", "Snow", "king in the north");
+		
+		assertAll(
+				() -> assertEquals("king in the north", store.get(1L).getRole()),
+				() -> assertTrue(store.idsWithRole("night's watch").isEmpty()),
+				() -> assertTrue(store.idsWithRole("king in the north").contains(1L)),
+				() -> assertEquals(1, store.size())
+		);
+	}
+	
+	@Test
+	/**
+	 * Tests that removals and the arena reclaim they trigger leave every other employee
+	 * reachable by id and role
+	 */
+	void remove_ManyIds_ShouldKeepRemainingIdsReachable() {
+		OffHeapEmployeeStore store = new OffHeapEmployeeStore(1, 64);
+		
+		for (long id = 1; id <= 10000; id++) {
+			store.put(id, "First" + id, "Last" + id, "role" + (id % 7));
+		}
+		for (long id = 1; id <= 10000; id += 2) {
+			assertTrue(store.remove(id));
+		}
+		// Replace every remaining record to force the arena to be reclaimed
+		for (long id = 2; id <= 10000; id += 2) {
+			store.put(id, "First" + id, "Last" + id, "replaced");
+		}
+		
+		assertEquals(5000, store.size());
+		assertEquals(5000, store.idsWithRole("replaced").size());
+		for (long id = 1; id <= 10000; id++) {
+			Employee employee = store.get(id);
+			if (id % 2 == 0) {
+				assertEquals("First" + id, employee.getFirstName());
+			} else {
+				assertNull(employee);
+			}
+		}
+		assertFalse(store.remove(1L));
+	}
+	
+	@Test
+	/**
+	 * Tests that writers on different stripes do not lose each other's employees
+	 */
+	void put_ConcurrentWriters_ShouldKeepEveryEmployee() throws Exception {
+		OffHeapEmployeeStore store = new OffHeapEmployeeStore(8, 64);
+		ExecutorService writers = Executors.newFixedThreadPool(8);
+		List<Future<?>> results = new ArrayList<>();
+		
+		for (int writer = 0; writer < 8; writer++) {
+			long first = writer * 10000L;
+			results.add(writers.submit(() -> {
+				for (long id = first; id < first + 10000; id++) {
+					store.put(id, "Concurrent", "Writer", "role" + (id % 3));
+				}
+			}));
+		}
+		for (Future<?> result : results) {
+			result.get();
+		}
+		writers.shutdown();
+		
+		assertEquals(80000, store.size());
+		assertEquals(80000, store.all().size());
+		assertEquals(80000, store.idsWithRole("role0").size() + store.idsWithRole("role1").size()
+				+ store.idsWithRole("role2").size());
+	}
+	
+	@Test
+	/**
+	 * Tests that ids added to a role while other ids leave it are still indexed once
+	 * the role set has been emptied and refilled
+	 */
+	void put_ConcurrentWritersMovingIdsBetweenRoles_ShouldKeepRoleIndexComplete() throws Exception {
+		OffHeapEmployeeStore store = new OffHeapEmployeeStore(8, 64);
+		ExecutorService writers = Executors.newFixedThreadPool(8);
+		List<Future<?>> results = new ArrayList<>();
+		
+		for (int writer = 0; writer < 8; writer++) {
+			long id = writer;
+			results.add(writers.submit(() -> {
+				// Every writer keeps emptying and refilling the set of the shared role
+				for (int i = 0; i < 20000; i++) {
+					store.put(id, "Role", "Mover", i % 2 == 0 ? "own" + id : "shared");
+				}
+			}));
+		}
+		for (Future<?> result : results) {
+			result.get();
+		}
+		writers.shutdown();
+		
+		assertAll(
+				() -> assertEquals(8, store.idsWithRole("shared").size()),
+				() -> assertEquals(Long.valueOf(8), store.roleCounts().get("shared")),
+				() -> assertEquals(1, store.roleCounts().size())
+		);
+	}
+	
+	@Test
+	/**
+	 * Tests that the arena doubles up to MAX_ARENA_BYTES instead of overflowing, and
+	 * fails once the live records cannot fit
+	 */
+	void grownCapacity_PastMaximum_ShouldCapOrFail() {
+		assertAll(
+				() -> assertEquals(256, OffHeapEmployeeStore.grownCapacity(64, 100)),
+				() -> assertEquals(OffHeapEmployeeStore.MAX_ARENA_BYTES,
+						OffHeapEmployeeStore.grownCapacity(1 << 30, (1L << 30) + 1)),
+				() -> assertThrows(IllegalStateException.class,
+						() -> OffHeapEmployeeStore.grownCapacity(1 << 30, 1L << 31))
+		);
+	}
+}
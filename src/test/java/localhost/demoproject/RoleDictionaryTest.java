@@ -0,0 +1,74 @@
+package localhost.demoproject;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:role-dictionary;DB_CLOSE_DELAY=-1",
+		"spring.datasource.hikari.maximum-pool-size=2",
+		"spring.datasource.hikari.connection-timeout=2000"
+})
+@AutoConfigureMockMvc
+class RoleDictionaryTest {
+	private static final int WRITERS = 8;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private RoleDictionary dictionary;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Test
+	/**
+	 * Tests that concurrent writers with new roles each hold at most one connection,
+	 * so they all finish on a pool smaller than their number
+	 */
+	void post_ConcurrentNewRoles_ShouldNotExhaustConnectionPool() throws Exception {
+		ExecutorService writers = Executors.newFixedThreadPool(WRITERS);
+		List<Future<Integer>> statuses = new ArrayList<>();
+
+		for (int writer = 0; writer < WRITERS; writer++) {
+			String employee = "{\"firstName\":\"Maester\",\"lastName\":\"No" + writer + "\",\"role\":\"maester of link " + writer + "\"}";
+			statuses.add(writers.submit(() -> mockMvc.perform(post("/employees")
+					.content(employee)
+					.contentType(MediaType.APPLICATION_JSON))
+					.andReturn().getResponse().getStatus()));
+		}
+
+		for (Future<Integer> status : statuses) {
+			assertEquals(201, status.get(30, TimeUnit.SECONDS).intValue());
+		}
+		writers.shutdown();
+	}
+
+	@Test
+	/**
+	 * Tests that a role added by another instance after startup is still found
+	 */
+	void find_RoleAddedByOtherInstance_ShouldBeRead() {
+		new JdbcTemplate(dataSource).update("INSERT INTO employee_role (name) VALUES (?)", "grand maester");
+
+		assertNotNull(dictionary.find("grand maester"));
+		assertNull(dictionary.find("archmaester"));
+	}
+}
@@ -0,0 +1,21 @@
+package localhost.demoproject;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+@ActiveProfiles("sharded")
+@TestPropertySource(properties = {"employee.sharding.shards=3",
+		"employee.sharding.url=jdbc:h2:mem:api-test-shard-%d;DB_CLOSE_DELAY=-1"})
+class ShardedEmployeeApiTest extends EmployeeApiTest {
+	
+	@Test
+	/**
+	 * Tests that the sharded profile replaces the JPA repository
+	 */
+	void repository_ShardedProfile_ShouldUseShardedRepository() {
+		assertTrue(repository instanceof ShardedEmployeeRepository);
+	}
+}
@@ -0,0 +1,294 @@
+package localhost.demoproject;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+/**
+ * Runs the sharded repository against separate embedded H2 databases
+ */
+class ShardedEmployeeRepositoryTest {
+	private ShardedEmployeeRepository repository;
+	
+	@AfterEach
+	void close() throws Exception {
+		repository.close();
+	}
+	
+	private ShardedEmployeeRepository repository(int shards) {
+		repository = new ShardedEmployeeRepository(shards, shard -> new EmbeddedDatabaseBuilder()
+				.setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build(), 10);
+		return repository;
+	}
+	
+	@Test
+	/**
+	 * Tests that saved employees get unique ascending ids and spread evenly over the
+	 * shards, and that queries merge every shard
+	 */
+	void save_ManyEmployees_ShouldSpreadOverShardsWithUniqueIds() {
+		ShardedEmployeeRepository repository = repository(3);
+		
+		for (int i = 0; i < 300; i++) {
+			repository.save(new Employee("First" + i, "Last" + i, "role" + (i % 3)));
+		}
+		
+		long[] rows = repository.rowsPerShard();
+		List<Employee> employees = repository.findAll();
+		assertAll(
+				() -> assertEquals(300, employees.size()),
+				() -> assertEquals(300, employees.stream().map(Employee::getId).distinct().count()),
+				() -> assertEquals(300, repository.count()),
+				() -> assertEquals(100, repository.findByRole("role1").size()),
+				() -> assertTrue(rows[0] > 50 && rows[1] > 50 && rows[2] > 50)
+		);
+		for (int i = 1; i < employees.size(); i++) {
+			assertTrue(employees.get(i - 1).getId() < employees.get(i).getId());
+		}
+	}
+	
+	@Test
+	/**
+	 * Tests that saving an employee under an id no shard holds creates a new id
+	 */
+	void save_UnknownId_ShouldAssignNewId() {
+		ShardedEmployeeRepository repository = repository(2);
+		Employee employee = new Employee("Frodo", "Baggins", "ring bearer");
+		employee.setId(12345L);
+		
+		repository.save(employee);
+		
+		assertNotEquals(12345L, employee.getId());
+		assertTrue(repository.existsById(employee.getId()));
+		assertFalse(repository.existsById(12345L));
+	}
+	
+	@Test
+	/**
+	 * Tests that adding a shard only moves rows to it, about a quarter of them
+	 */
+	void reshard_MoreShards_ShouldOnlyMoveRowsToNewShards() {
+		ShardedEmployeeRepository repository = repository(3);
+		for (int i = 0; i < 600; i++) {
+			repository.save(new Employee("First" + i, "Last" + i, "tester"));
+		}
+		long[] before = repository.rowsPerShard();
+		
+		long moved = repository.reshard(4);
+		
+		long[] after = repository.rowsPerShard();
+		assertEquals(600, repository.count());
+		assertEquals(after[3], moved);
+		// Consistent hashing only takes rows from the existing shards for the new one
+		for (int shard = 0; shard < 3; shard++) {
+			assertTrue(after[shard] <= before[shard]);
+		}
+		assertTrue(moved > 75 && moved < 225);
+	}
+	
+	@Test
+	/**
+	 * Tests that updates and deletes made while resharding all survive the move
+	 */
+	void reshard_WhileWriting_ShouldNotLoseUpdatesOrResurrectDeletes() throws Exception {
+		ShardedEmployeeRepository repository = repository(2);
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			ids.add(repository.save(new Employee("First" + i, "Last" + i, "v0")).getId());
+		}
+		
+		AtomicBoolean resharding = new AtomicBoolean(true);
+		ExecutorService writers = Executors.newFixedThreadPool(4);
+		List<Future<Map<Long, String>>> results = new ArrayList<>();
+		for (int writer = 0; writer < 4; writer++) {
+			int offset = writer;
+			results.add(writers.submit(() -> {
+				// Each writer owns every fourth id, so it knows the final state of its ids
+				Map<Long, String> last = new HashMap<>();
+				Random random = new Random(offset);
+				int version = 0;
+				while (resharding.get() || version < 200) {
+					long id = ids.get(offset + 4 * random.nextInt(ids.size() / 4));
+					if ("deleted".equals(last.get(id))) {
+						continue;
+					}
+					if (random.nextInt(10) == 0) {
+						repository.deleteById(id);
+						last.put(id, "deleted");
+					} else {
+						Employee employee = new Employee("First", "Last", "v" + ++version);
+						employee.setId(id);
+						repository.save(employee);
+						last.put(id, employee.getRole());
+					}
+				}
+				return last;
+			}));
+		}
+		
+		repository.reshard(5);
+		resharding.set(false);
+		Map<Long, String> expected = new HashMap<>();
+		for (Future<Map<Long, String>> result : results) {
+			expected.putAll(result.get());
+		}
+		writers.shutdown();
+		
+		long deleted = expected.values().stream().filter("deleted"::equals).count();
+		assertEquals(2000 - deleted, repository.count());
+		assertEquals(2000 - deleted, repository.findAll().size());
+		for (Map.Entry<Long, String> entry : expected.entrySet()) {
+			if ("deleted".equals(entry.getValue())) {
+				assertFalse(repository.findById(entry.getKey()).isPresent(), "resurrected " + entry.getKey());
+			} else {
+				assertEquals(entry.getValue(), repository.findById(entry.getKey()).get().getRole(), "lost update " + entry.getKey());
+			}
+		}
+	}
+	
+	@Test
+	/**
+	 * Tests that resharding waits for an insert that picked its shard from the old
+	 * layout, so the move finds the row instead of leaving it behind
+	 */
+	void reshard_WhileInsertWaitsToWrite_ShouldMoveInsertedEmployee() throws Exception {
+		AtomicReference<Thread> paused = new AtomicReference<>();
+		CountDownLatch waiting = new CountDownLatch(1);
+		CountDownLatch resume = new CountDownLatch(1);
+		repository = new ShardedEmployeeRepository(1, shard -> new DelegatingDataSource(new EmbeddedDatabaseBuilder()
+				.setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build()) {
+			@Override
+			public Connection getConnection() throws SQLException {
+				Connection connection = super.getConnection();
+				// Holds the paused thread between picking its shard and writing the row
+				return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class},
+						(proxy, method, args) -> {
+							if (method.getName().equals("prepareStatement") && ((String) args[0]).startsWith("MERGE")
+									&& paused.compareAndSet(Thread.currentThread(), null)) {
+								waiting.countDown();
+								resume.await();
+							}
+							try {
+								return method.invoke(connection, args);
+							} catch (InvocationTargetException e) {
+								throw e.getCause();
+							}
+						});
+			}
+		}, 10);
+		ExecutorService threads = Executors.newFixedThreadPool(2);
+		
+		Future<Employee> insert = threads.submit(() -> {
+			paused.set(Thread.currentThread());
+			return repository.save(new Employee("Late", "Insert", "tester"));
+		});
+		assertTrue(waiting.await(10, TimeUnit.SECONDS));
+		Future<Long> reshard = threads.submit(() -> repository.reshard(8));
+		try {
+			// Finishes here only if the layout changed under the paused insert
+			reshard.get(1, TimeUnit.SECONDS);
+		} catch (TimeoutException e) {
+			// Waiting for the insert, as it should
+		}
+		resume.countDown();
+		long id = insert.get().getId();
+		reshard.get();
+		threads.shutdown();
+		
+		assertTrue(repository.findById(id).isPresent(), "lost employee " + id);
+		assertEquals(1, repository.count());
+		assertEquals(1, repository.findAll().size());
+	}
+	
+	@Test
+	/**
+	 * Tests that a delete checking the employee exists while the move of that
+	 * employee runs still finds it and deletes it
+	 */
+	void reshard_WhileDeleteLooksUpEmployee_ShouldDeleteMovedEmployee() throws Exception {
+		AtomicReference<Thread> scanner = new AtomicReference<>();
+		AtomicReference<Thread> reader = new AtomicReference<>();
+		AtomicInteger reads = new AtomicInteger();
+		CountDownLatch scanning = new CountDownLatch(1);
+		CountDownLatch scan = new CountDownLatch(1);
+		CountDownLatch reading = new CountDownLatch(1);
+		CountDownLatch read = new CountDownLatch(1);
+		repository = new ShardedEmployeeRepository(1, shard -> new DelegatingDataSource(new EmbeddedDatabaseBuilder()
+				.setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build()) {
+			@Override
+			public Connection getConnection() throws SQLException {
+				Connection connection = super.getConnection();
+				// Holds the reshard before its scan, and the delete between its two lookups
+				return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class},
+						(proxy, method, args) -> {
+							if (method.getName().equals("prepareStatement")) {
+								String sql = (String) args[0];
+								if (sql.contains("WHERE id > ?") && scanner.compareAndSet(Thread.currentThread(), null)) {
+									scanning.countDown();
+									scan.await();
+								}
+								if (sql.contains("WHERE id = ?") && reader.get() == Thread.currentThread()
+										&& reads.incrementAndGet() == 2) {
+									reading.countDown();
+									read.await();
+								}
+							}
+							try {
+								return method.invoke(connection, args);
+							} catch (InvocationTargetException e) {
+								throw e.getCause();
+							}
+						});
+			}
+		}, 10);
+		long id = repository.save(new Employee("Moving", "Target", "tester")).getId();
+		ExecutorService threads = Executors.newFixedThreadPool(2);
+		
+		Future<Long> reshard = threads.submit(() -> {
+			scanner.set(Thread.currentThread());
+			return repository.reshard(64);
+		});
+		assertTrue(scanning.await(10, TimeUnit.SECONDS));
+		// Like DELETE /employees/{id}: only an employee that is found gets deleted
+		Future<Boolean> delete = threads.submit(() -> {
+			reader.set(Thread.currentThread());
+			Optional<Employee> found = repository.findById(id);
+			found.ifPresent(employee -> repository.deleteById(id));
+			return found.isPresent();
+		});
+		assertTrue(reading.await(10, TimeUnit.SECONDS));
+		scan.countDown();
+		assertEquals(1, reshard.get().longValue());
+		read.countDown();
+		boolean deleted = delete.get();
+		threads.shutdown();
+		
+		assertTrue(deleted, "employee " + id + " not found while moving");
+		assertFalse(repository.findById(id).isPresent());
+		assertEquals(0, repository.count());
+	}
+}
@@ -0,0 +1,188 @@
+package localhost.demoproject;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarOutputStream;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Starts the application in a fresh JVM and measures the time from launching the
+ * process to the first successful GET /employees, with the default settings and with
+ * the fast-start profile. Fails when fast-start needs more than startup.budget-ms.
+ * Run with {@code mvn test -Pbenchmark}.
+ *
+ * When the JVM given by startup.java is JDK 13 or later, fast-start is also measured
+ * from a class data sharing archive recorded by a training run.
+ */
+@Tag("benchmark")
+@Slf4j
+class StartupBenchmarkTest {
+	private static final int RUNS = 3;
+	private static final long BUDGET_MILLIS = Long.getLong("startup.budget-ms", 20000);
+	private static final long TIMEOUT_MILLIS = 120000;
+	private static final String JAVA = System.getProperty("startup.java",
+			System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+	private static final File OUTPUT = new File("target", "startup-benchmark.log");
+
+	private static File workDirectory;
+	private static String classPath;
+
+	/**
+	 * Puts the test class path together from jars only, since class data sharing
+	 * does not archive classes loaded from a directory
+	 */
+	@BeforeAll
+	static void packClassPath() throws IOException {
+		workDirectory = Files.createTempDirectory("startup-benchmark").toFile();
+		List<String> jars = new ArrayList<>();
+		for (String entry : System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"))
+				.split(File.pathSeparator)) {
+			File file = new File(entry);
+			if (file.isDirectory()) {
+				File jar = new File(workDirectory, jars.size() + "-" + file.getName() + ".jar");
+				pack(file.toPath(), jar);
+				jars.add(jar.getPath());
+			} else if (file.exists()) {
+				jars.add(entry);
+			}
+		}
+		classPath = String.join(File.pathSeparator, jars);
+	}
+
+	@Test
+	/**
+	 * Tests that a fresh JVM on the fast-start profile answers its first request within
+	 * the budget, also with class data sharing where the JDK supports it
+	 */
+	void firstRequest_FastStartProfile_ShouldBeServedWithinBudget() throws Exception {
+		List<String> fastStart = Collections.singletonList("--spring.profiles.active=fast-start");
+
+		long defaults = median(Collections.emptyList(), Collections.emptyList());
+		long lazy = median(Collections.emptyList(), fastStart);
+		log.info(String.format("Time to first request: default %d ms, fast-start %d ms (median of %d, budget %d ms)",
+				defaults, lazy, RUNS, BUDGET_MILLIS));
+		assertTrue(lazy <= BUDGET_MILLIS, "fast-start took " + lazy + " ms");
+
+		if (javaVersion() >= 13) {
+			File archive = new File(workDirectory, "app.jsa");
+			timeToFirstRequest(Collections.singletonList("-XX:ArchiveClassesAtExit=" + archive), fastStart);
+			assertTrue(archive.exists(), "training run did not write " + archive);
+
+			long shared = median(Collections.singletonList("-XX:SharedArchiveFile=" + archive), fastStart);
+			log.info(String.format("Time to first request: fast-start with class data sharing %d ms", shared));
+			assertTrue(shared <= BUDGET_MILLIS, "fast-start with class data sharing took " + shared + " ms");
+		} else {
+			log.info("Skipped class data sharing, " + JAVA + " is older than JDK 13");
+		}
+	}
+
+	private long median(List<String> jvmOptions, List<String> args) throws Exception {
+		long[] millis = new long[RUNS];
+		for (int run = 0; run < RUNS; run++) {
+			millis[run] = timeToFirstRequest(jvmOptions, args);
+		}
+		Arrays.sort(millis);
+		return millis[RUNS / 2];
+	}
+
+	/**
+	 * Helper function that starts the application and stops it again once it answered
+	 *
+	 * @return the milliseconds from starting the JVM to the first 200 from GET /employees
+	 */
+	private long timeToFirstRequest(List<String> jvmOptions, List<String> args) throws Exception {
+		int port;
+		try (ServerSocket socket = new ServerSocket(0)) {
+			port = socket.getLocalPort();
+		}
+		List<String> command = new ArrayList<>();
+		command.add(JAVA);
+		command.addAll(jvmOptions);
+		// The test classes come along, which is close enough to the packaged application
+		command.addAll(Arrays.asList("-cp", classPath, DemoProjectApplication.class.getName(),
+				"--server.port=" + port, "--spring.jmx.enabled=false"));
+		command.addAll(args);
+		URL url = new URL("http://localhost:" + port + "/employees");
+
+		long start = System.nanoTime();
+		Process process = new ProcessBuilder(command)
+				.redirectErrorStream(true)
+				.redirectOutput(ProcessBuilder.Redirect.appendTo(OUTPUT))
+				.start();
+		try {
+			while (true) {
+				long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+				assertTrue(process.isAlive(), "application exited, see " + OUTPUT);
+				assertTrue(millis < TIMEOUT_MILLIS, "no response after " + millis + " ms, see " + OUTPUT);
+				try {
+					HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+					connection.setConnectTimeout(100);
+					if (connection.getResponseCode() == 200) {
+						return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+					}
+				} catch (IOException notListeningYet) {
+				}
+				Thread.sleep(10);
+			}
+		} finally {
+			// A graceful stop, so a training run writes its archive
+			process.destroy();
+			if (!process.waitFor(60, TimeUnit.SECONDS)) {
+				process.destroyForcibly();
+			}
+		}
+	}
+
+	private static void pack(Path directory, File jar) throws IOException {
+		List<Path> files;
+		try (Stream<Path> walk = Files.walk(directory)) {
+			files = walk.filter(file -> !file.equals(directory)).collect(Collectors.toList());
+		}
+		try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+			for (Path file : files) {
+				String name = directory.relativize(file).toString().replace(File.separatorChar, '/');
+				// Scanning the class path for a package only finds jars with an entry for its directory
+				if (Files.isDirectory(file)) {
+					out.putNextEntry(new ZipEntry(name + "/"));
+				} else {
+					out.putNextEntry(new ZipEntry(name));
+					Files.copy(file, out);
+				}
+				out.closeEntry();
+			}
+		}
+	}
+
+	private static int javaVersion() throws Exception {
+		Process process = new ProcessBuilder(JAVA, "-version").redirectErrorStream(true).start();
+		try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+			Matcher version = Pattern.compile("version \"(1\\.)?(\\d+)").matcher(output.readLine());
+			return version.find() ? Integer.parseInt(version.group(2)) : 8;
+		}
+	}
+}